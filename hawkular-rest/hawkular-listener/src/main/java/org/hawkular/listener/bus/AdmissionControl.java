@@ -0,0 +1,48 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+/**
+ * Interface for admission control of the feed backfills. Watches the downstream work (the feed ping queue and the
+ * backfills) and decides whether a feed that looks quiet may be backfilled. While the pings are lagging a quiet feed
+ * may just be a feed whose ping is not yet processed, so the backfill timeout is stretched instead of marking it DOWN.
+ * It also slows down the delivery of avail messages, so the backlog is kept by the broker rather than in memory.
+ *
+ * @author agent
+ */
+public interface AdmissionControl extends AdmissionControlMXBean {
+
+    /**
+     * Decide whether a quiet feed should be backfilled now. In {@link State#NORMAL} state a feed is backfilled as
+     * soon as its quiet period exceeds the max quiet period. Otherwise the max quiet period is stretched by the
+     * factor configured for the state, and the backfill is deferred until the stretched period is exceeded.
+     *
+     * @param quietPeriodMs time since the last ping recorded for the feed
+     * @param maxQuietPeriodMs the configured max quiet period for the feed
+     * @return true if the feed should be backfilled, false if the backfill is deferred to a later check
+     */
+    boolean admitBackfill(long quietPeriodMs, long maxQuietPeriodMs);
+
+    /**
+     * Called by a message listener before it handles a message. Returns immediately in {@link State#NORMAL} state.
+     * In {@link State#THROTTLED} state the calling thread is held for the throttle delivery delay. In
+     * {@link State#PAUSED} state it is held until the state changes, at most for the max pause.
+     *
+     * @return the time the calling thread was held, in ms
+     */
+    long holdDelivery();
+}
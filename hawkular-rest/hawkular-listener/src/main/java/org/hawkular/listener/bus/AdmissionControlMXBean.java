@@ -0,0 +1,78 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+/**
+ * Management view of the {@link AdmissionControl}, registered as
+ * <code>org.hawkular.services:type=AdmissionControl</code>.
+ *
+ * @author agent
+ */
+public interface AdmissionControlMXBean {
+
+    /**
+     * Admission state for the feed backfills.
+     */
+    enum State {
+        /** Quiet feeds are backfilled after their max quiet period. */
+        NORMAL,
+        /** Message delivery is slowed down and the max quiet period is stretched by the throttle factor. */
+        THROTTLED,
+        /** Message delivery is held and the max quiet period is stretched by the pause factor. */
+        PAUSED
+    }
+
+    /**
+     * @return the current admission state
+     */
+    State getState();
+
+    /**
+     * @return the number of backfill checks deferred while not in {@link State#NORMAL} state
+     */
+    long getDeferredBackfillCount();
+
+    /**
+     * @return the factor applied to the max quiet period while in {@link State#THROTTLED} state
+     */
+    long getThrottleQuietPeriodFactor();
+
+    /**
+     * @return the factor applied to the max quiet period while in {@link State#PAUSED} state
+     */
+    long getPauseQuietPeriodFactor();
+
+    /**
+     * @return the number of message deliveries held while not in {@link State#NORMAL} state
+     */
+    long getHeldDeliveryCount();
+
+    /**
+     * @return the total time message deliveries were held, in ms
+     */
+    long getDeliveryHoldTimeMs();
+
+    /**
+     * @return the time a message delivery is held while in {@link State#THROTTLED} state, in ms
+     */
+    long getThrottleDeliveryDelayMs();
+
+    /**
+     * @return the max time a message delivery is held while in {@link State#PAUSED} state, in ms
+     */
+    long getMaxPauseMs();
+}
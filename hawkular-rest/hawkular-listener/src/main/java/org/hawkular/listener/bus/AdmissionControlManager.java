@@ -0,0 +1,321 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.ejb.EJB;
+import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.hawkular.listener.cache.BackfillCache;
+import org.hawkular.listener.cache.FeedPingQueue;
+import org.jboss.logging.Logger;
+
+/**
+ * <p>
+ * Implementation of {@link AdmissionControl}. The state is re-evaluated at most every 250ms, from the lag of the
+ * {@link FeedPingQueue} and from the number and latency of pending backfills in the {@link BackfillCache}.</p>
+ * <p>
+ * Delivery is slowed down by holding the MDB delivery thread, see {@link #holdDelivery()}. The listener pool has a
+ * fixed number of sessions, so while they are held the broker keeps the backlog of avail messages, not our heap.
+ * A pause is bounded by the max pause, a message is never dropped.</p>
+ * <p>
+ * The following system properties can be defined to configure admission control:
+ * <pre>
+ * hawkular-services.admission.throttle-queue-lag-ms
+ *   Feed ping queue lag at which backfills are throttled.
+ *   Default = 2000
+ *
+ * hawkular-services.admission.pause-queue-lag-ms
+ *   Feed ping queue lag at which backfills are paused.
+ *   Default = 10000
+ *
+ * hawkular-services.admission.throttle-pending-backfills
+ *   Number of in-flight backfills at which backfills are throttled.
+ *   Default = 50
+ *
+ * hawkular-services.admission.pause-pending-backfills
+ *   Number of in-flight backfills at which backfills are paused.
+ *   Default = 200
+ *
+ * hawkular-services.admission.throttle-backfill-latency-ms
+ *   Average backfill latency at which backfills are throttled.
+ *   Default = 10000
+ *
+ * hawkular-services.admission.throttle-quiet-period-factor
+ *   Factor applied to a feed's max quiet period, before it is backfilled, while throttled.
+ *   Default = 2
+ *
+ * hawkular-services.admission.pause-quiet-period-factor
+ *   Factor applied to a feed's max quiet period, before it is backfilled, while paused.
+ *   Default = 4
+ *
+ * hawkular-services.admission.throttle-delivery-delay-ms
+ *   Time a message delivery is held while throttled.
+ *   Default = 100
+ *
+ * hawkular-services.admission.max-pause-ms
+ *   Max time a message delivery is held while paused, the pause ends earlier if the state changes.
+ *   Default = 30000
+ * </pre></p>
+ * <p>
+ * The admission state and counters are available via JMX, see {@link AdmissionControlMXBean}.</p>
+ *
+ * @author agent
+ */
+@Local(AdmissionControl.class)
+@Startup
+@Singleton
+@TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+public class AdmissionControlManager implements AdmissionControl {
+
+    private static final String DEFAULT_THROTTLE_QUEUE_LAG_MS = "2000";
+    private static final String DEFAULT_PAUSE_QUEUE_LAG_MS = "10000";
+    private static final String DEFAULT_THROTTLE_PENDING_BACKFILLS = "50";
+    private static final String DEFAULT_PAUSE_PENDING_BACKFILLS = "200";
+    private static final String DEFAULT_THROTTLE_BACKFILL_LATENCY_MS = "10000";
+    private static final String DEFAULT_THROTTLE_QUIET_PERIOD_FACTOR = "2";
+    private static final String DEFAULT_PAUSE_QUIET_PERIOD_FACTOR = "4";
+    private static final String DEFAULT_THROTTLE_DELIVERY_DELAY_MS = "100";
+    private static final String DEFAULT_MAX_PAUSE_MS = "30000";
+
+    private static final String PROP_PREFIX = "hawkular-services.admission.";
+    private static final String PROP_THROTTLE_QUEUE_LAG_MS = PROP_PREFIX + "throttle-queue-lag-ms";
+    private static final String PROP_PAUSE_QUEUE_LAG_MS = PROP_PREFIX + "pause-queue-lag-ms";
+    private static final String PROP_THROTTLE_PENDING_BACKFILLS = PROP_PREFIX + "throttle-pending-backfills";
+    private static final String PROP_PAUSE_PENDING_BACKFILLS = PROP_PREFIX + "pause-pending-backfills";
+    private static final String PROP_THROTTLE_BACKFILL_LATENCY_MS = PROP_PREFIX + "throttle-backfill-latency-ms";
+    private static final String PROP_THROTTLE_QUIET_PERIOD_FACTOR = PROP_PREFIX + "throttle-quiet-period-factor";
+    private static final String PROP_PAUSE_QUIET_PERIOD_FACTOR = PROP_PREFIX + "pause-quiet-period-factor";
+    private static final String PROP_THROTTLE_DELIVERY_DELAY_MS = PROP_PREFIX + "throttle-delivery-delay-ms";
+    private static final String PROP_MAX_PAUSE_MS = PROP_PREFIX + "max-pause-ms";
+
+    private static final String MBEAN_NAME = "org.hawkular.services:type=AdmissionControl";
+
+    private static final long EVALUATION_PERIOD_MS = 250L;
+
+    private static long getLong(String prop, String defaultValue) {
+        try {
+            return Long.valueOf(System.getProperty(prop, defaultValue)).longValue();
+        } catch (Exception e) {
+            return Long.valueOf(defaultValue).longValue();
+        }
+    }
+
+    private final Logger log = Logger.getLogger(AdmissionControlManager.class);
+
+    private final AtomicLong deferredBackfills = new AtomicLong();
+    private final AtomicLong heldDeliveries = new AtomicLong();
+    private final AtomicLong deliveryHoldTime = new AtomicLong();
+
+    private long throttleQueueLagMs;
+    private long pauseQueueLagMs;
+    private long throttlePendingBackfills;
+    private long pausePendingBackfills;
+    private long throttleBackfillLatencyMs;
+    private long throttleQuietPeriodFactor;
+    private long pauseQuietPeriodFactor;
+    private long throttleDeliveryDelayMs;
+    private long maxPauseMs;
+
+    private volatile State state = State.NORMAL;
+    private volatile long lastEvaluation = 0L;
+
+    @EJB
+    FeedPingQueue feedPingQueue;
+
+    @EJB
+    BackfillCache backfillCacheManager;
+
+    @PostConstruct
+    public void init() {
+        throttleQueueLagMs = getLong(PROP_THROTTLE_QUEUE_LAG_MS, DEFAULT_THROTTLE_QUEUE_LAG_MS);
+        pauseQueueLagMs = getLong(PROP_PAUSE_QUEUE_LAG_MS, DEFAULT_PAUSE_QUEUE_LAG_MS);
+        throttlePendingBackfills = getLong(PROP_THROTTLE_PENDING_BACKFILLS, DEFAULT_THROTTLE_PENDING_BACKFILLS);
+        pausePendingBackfills = getLong(PROP_PAUSE_PENDING_BACKFILLS, DEFAULT_PAUSE_PENDING_BACKFILLS);
+        throttleBackfillLatencyMs = getLong(PROP_THROTTLE_BACKFILL_LATENCY_MS, DEFAULT_THROTTLE_BACKFILL_LATENCY_MS);
+        throttleQuietPeriodFactor = getLong(PROP_THROTTLE_QUIET_PERIOD_FACTOR, DEFAULT_THROTTLE_QUIET_PERIOD_FACTOR);
+        pauseQuietPeriodFactor = getLong(PROP_PAUSE_QUIET_PERIOD_FACTOR, DEFAULT_PAUSE_QUIET_PERIOD_FACTOR);
+        throttleDeliveryDelayMs = getLong(PROP_THROTTLE_DELIVERY_DELAY_MS, DEFAULT_THROTTLE_DELIVERY_DELAY_MS);
+        maxPauseMs = getLong(PROP_MAX_PAUSE_MS, DEFAULT_MAX_PAUSE_MS);
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            mbs.registerMBean(new StandardMBean(this, AdmissionControlMXBean.class, true),
+                    new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            log.warnf("Failed to register %s, admission state will not be available: %s", MBEAN_NAME, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.debugf("Failed to unregister %s: %s", MBEAN_NAME, e);
+        }
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public State getState() {
+        long now = now();
+        if (now - lastEvaluation >= EVALUATION_PERIOD_MS) {
+            lastEvaluation = now;
+            evaluate();
+        }
+        return state;
+    }
+
+    private void evaluate() {
+        long queueLagMs = feedPingQueue.getQueueLagMs();
+        int pendingBackfills = backfillCacheManager.getPendingBackfillCount();
+        long backfillLatencyMs = backfillCacheManager.getBackfillLatencyMs();
+
+        State newState;
+        if (queueLagMs >= pauseQueueLagMs || pendingBackfills >= pausePendingBackfills) {
+            newState = State.PAUSED;
+        } else if (queueLagMs >= throttleQueueLagMs || pendingBackfills >= throttlePendingBackfills
+                || backfillLatencyMs >= throttleBackfillLatencyMs) {
+            newState = State.THROTTLED;
+        } else {
+            newState = State.NORMAL;
+        }
+
+        if (newState != state) {
+            log.infof("Backfill admission state changed from %s to %s. Queue lag=%dms, pending backfills=%d, "
+                    + "backfill latency=%dms", state, newState, queueLagMs, pendingBackfills, backfillLatencyMs);
+            state = newState;
+        }
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public boolean admitBackfill(long quietPeriodMs, long maxQuietPeriodMs) {
+        long factor;
+        switch (getState()) {
+            case THROTTLED:
+                factor = throttleQuietPeriodFactor;
+                break;
+            case PAUSED:
+                factor = pauseQuietPeriodFactor;
+                break;
+            default:
+                return true;
+        }
+        if (quietPeriodMs > maxQuietPeriodMs * factor) {
+            return true;
+        }
+        deferredBackfills.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long holdDelivery() {
+        State current = getState();
+        if (State.NORMAL == current) {
+            return 0L;
+        }
+
+        long start = now();
+        try {
+            if (State.THROTTLED == current) {
+                sleep(throttleDeliveryDelayMs);
+            } else {
+                long deadline = start + maxPauseMs;
+                for (long now = start; State.PAUSED == current && now < deadline; now = now()) {
+                    sleep(Math.min(EVALUATION_PERIOD_MS, deadline - now));
+                    current = getState();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        long held = now() - start;
+        heldDeliveries.incrementAndGet();
+        deliveryHoldTime.addAndGet(held);
+        return held;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getDeferredBackfillCount() {
+        return deferredBackfills.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getThrottleQuietPeriodFactor() {
+        return throttleQuietPeriodFactor;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getPauseQuietPeriodFactor() {
+        return pauseQuietPeriodFactor;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getHeldDeliveryCount() {
+        return heldDeliveries.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getDeliveryHoldTimeMs() {
+        return deliveryHoldTime.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getThrottleDeliveryDelayMs() {
+        return throttleDeliveryDelayMs;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getMaxPauseMs() {
+        return maxPauseMs;
+    }
+
+    long now() {
+        return System.currentTimeMillis();
+    }
+
+    void sleep(long ms) throws InterruptedException {
+        Thread.sleep(ms);
+    }
+}
@@ -26,6 +26,8 @@ import org.hawkular.bus.common.BasicMessage;
 import org.hawkular.bus.common.consumer.BasicMessageListener;
 import org.hawkular.cmdgw.api.EventDestination;
 import org.hawkular.cmdgw.api.ResourcePathResponse;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.listener.bus.CommandEventRegistry.EventTemplate;
 import org.jboss.logging.Logger;
 
 /**
@@ -35,6 +37,9 @@ import org.jboss.logging.Logger;
  * payload should be a command pojo.  We want to generate only one Hawkular Event per Command Gateway event, so this
  * is Queue based, limiting message consumption to one server.
  * </p>
+ * <p>
+ * The response types converted to events are defined by the {@link CommandEventRegistry}.
+ * </p>
  * @author Jay Shaughnessy
  */
 @MessageDriven(messageListenerInterface = MessageListener.class, activationConfig = {
@@ -43,48 +48,26 @@ import org.jboss.logging.Logger;
 @TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
 public class CommandEventListener extends BasicMessageListener<BasicMessage> {
     private final Logger log = Logger.getLogger(CommandEventListener.class);
+    private static final CommandEventRegistry registry = new CommandEventRegistry();
+
     private final ListenerUtils utils = new ListenerUtils();
 
     @Override
     protected void onBasicMessage(BasicMessage msg) {
+        EventTemplate template = registry.getTemplate(msg.getClass());
+        log.debugf("Received message [%s] with template [%s]", msg, template);
 
-        String messageClass = msg.getClass().getSimpleName();
-        log.debugf("Received message [%s] with name [%s]", msg, messageClass); //TODO debug
-
-        String miqEventType = null;
-        String miqResourceType = null;
-        switch (messageClass) {
-            case "AddDatasourceResponse":
-                miqEventType = "hawkular_datasource";
-                miqResourceType = "MiddlewareServer";
-                break;
-            case "DeployApplicationResponse":
-                miqEventType = "hawkular_deployment";
-                miqResourceType = "MiddlewareServer";
-                break;
-            case "RemoveDatasourceResponse":
-                miqEventType = "hawkular_datasource_remove";
-                miqResourceType = "MiddlewareServer";
-                break;
-            case "UndeployApplicationResponse": {
-                miqEventType = "hawkular_deployment_remove";
-                miqResourceType = "MiddlewareServer";
-                break;
-            }
-            default: {
-                // other EventDestination messages are expected but not currently interesting
-                if (!(msg instanceof EventDestination)) {
-                    log.warnf("Unexpected CommandEvent Message [%s]", msg.toJSON());
-                }
-            }
-        }
-        if (null != miqEventType) {
+        if (template.isRouted()) {
             ResourcePathResponse response = (ResourcePathResponse) msg;
             String text = response.getStatus().name().toLowerCase();
             boolean isError = "error".equals(text);
-            utils.addEvent(response.getResourcePath(), messageClass, text,
-                    (miqEventType + (isError ? ".error" : ".ok")), miqResourceType, response.getMessage());
-        }
+            String resourcePathStr = response.getResourcePath();
+            utils.addEvent(CanonicalPath.fromString(resourcePathStr), resourcePathStr, template, text, isError,
+                    response.getMessage());
 
+        } else if (!(msg instanceof EventDestination)) {
+            // other EventDestination messages are expected but not currently interesting
+            log.warnf("Unexpected CommandEvent Message [%s]", msg.toJSON());
+        }
     }
 }
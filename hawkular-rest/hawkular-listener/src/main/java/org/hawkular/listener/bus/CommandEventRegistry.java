@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.hawkular.cmdgw.api.ResourcePathResponse;
+import org.jboss.logging.Logger;
+
+/**
+ * <p>
+ * Maps Command Gateway response types to the Hawkular Event that should be generated for them. The mapping is
+ * resolved once per message class (via a {@link ClassValue}) so that routing a message costs a single lookup.</p>
+ * <p>
+ * Only {@link ResourcePathResponse} types can be routed. Additional (or overriding) mappings can be supplied with
+ * the following system property:
+ * <pre>
+ * hawkular-services.command-events
+ *   Comma-separated list of entries of the form responseClass=miqEventType[:miqResourceType]. The response class
+ *   may be given by simple or fully qualified name. When omitted the resource type is MiddlewareServer.
+ *   For example: AddJdbcDriverResponse=hawkular_jdbc_driver,RemoveJdbcDriverResponse=hawkular_jdbc_driver_remove
+ * </pre></p>
+ *
+ * @author agent
+ */
+public class CommandEventRegistry {
+    private static final Logger log = Logger.getLogger(CommandEventRegistry.class);
+
+    public static final String PROP_COMMAND_EVENTS = "hawkular-services.command-events";
+
+    private static final String DEFAULT_MIQ_RESOURCE_TYPE = "MiddlewareServer";
+
+    private final Map<String, EventTemplate> templatesByName;
+
+    private final ClassValue<EventTemplate> templatesByClass = new ClassValue<EventTemplate>() {
+        @Override
+        protected EventTemplate computeValue(Class<?> type) {
+            if (!ResourcePathResponse.class.isAssignableFrom(type)) {
+                return EventTemplate.NONE;
+            }
+            EventTemplate template = templatesByName.get(type.getName());
+            if (null == template) {
+                template = templatesByName.get(type.getSimpleName());
+            }
+            return (null == template) ? EventTemplate.NONE : template;
+        }
+    };
+
+    public CommandEventRegistry() {
+        this(System.getProperty(PROP_COMMAND_EVENTS));
+    }
+
+    /**
+     * @param config optional additional mappings, in the format of {@link #PROP_COMMAND_EVENTS}
+     */
+    public CommandEventRegistry(String config) {
+        Map<String, EventTemplate> templates = new HashMap<>();
+        register(templates, "AddDatasourceResponse", "hawkular_datasource", DEFAULT_MIQ_RESOURCE_TYPE);
+        register(templates, "DeployApplicationResponse", "hawkular_deployment", DEFAULT_MIQ_RESOURCE_TYPE);
+        register(templates, "RemoveDatasourceResponse", "hawkular_datasource_remove", DEFAULT_MIQ_RESOURCE_TYPE);
+        register(templates, "UndeployApplicationResponse", "hawkular_deployment_remove",
+                DEFAULT_MIQ_RESOURCE_TYPE);
+
+        if (null != config && !config.trim().isEmpty()) {
+            for (String entry : config.split(",")) {
+                String[] nameAndType = entry.split("=");
+                if (nameAndType.length != 2 || nameAndType[0].trim().isEmpty() || nameAndType[1].trim().isEmpty()) {
+                    log.warnf("Ignoring invalid entry [%s] in %s", entry, PROP_COMMAND_EVENTS);
+                    continue;
+                }
+                String[] types = nameAndType[1].split(":");
+                String miqResourceType = (types.length > 1 && !types[1].trim().isEmpty()) ? types[1].trim()
+                        : DEFAULT_MIQ_RESOURCE_TYPE;
+                register(templates, nameAndType[0].trim(), types[0].trim(), miqResourceType);
+            }
+        }
+
+        this.templatesByName = Collections.unmodifiableMap(templates);
+    }
+
+    private static void register(Map<String, EventTemplate> templates, String responseClass, String miqEventType,
+            String miqResourceType) {
+        // the category is always the simple name of the response class
+        int i = responseClass.lastIndexOf('.');
+        String category = (i < 0) ? responseClass : responseClass.substring(i + 1);
+        templates.put(responseClass, new EventTemplate(category, miqEventType, miqResourceType));
+    }
+
+    /**
+     * @param messageClass the class of the received message
+     * @return the template for the message class, never null. {@link EventTemplate#NONE} if the class is not routed.
+     */
+    public EventTemplate getTemplate(Class<?> messageClass) {
+        return templatesByClass.get(messageClass);
+    }
+
+    /**
+     * Immutable, pre-computed description of the event generated for a routed response type.
+     */
+    public static class EventTemplate {
+        public static final EventTemplate NONE = new EventTemplate(null, null, null);
+
+        private final String category;
+        private final String miqResourceType;
+        private final String miqEventTypeOk;
+        private final String miqEventTypeError;
+
+        private EventTemplate(String category, String miqEventType, String miqResourceType) {
+            this.category = category;
+            this.miqResourceType = miqResourceType;
+            this.miqEventTypeOk = (null == miqEventType) ? null : (miqEventType + ".ok");
+            this.miqEventTypeError = (null == miqEventType) ? null : (miqEventType + ".error");
+        }
+
+        public boolean isRouted() {
+            return this != NONE;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public String getMiqResourceType() {
+            return miqResourceType;
+        }
+
+        public String getMiqEventType(boolean isError) {
+            return isError ? miqEventTypeError : miqEventTypeOk;
+        }
+
+        @Override
+        public String toString() {
+            return "EventTemplate [category=" + category + ", miqEventType=" + miqEventTypeOk + ", miqResourceType="
+                    + miqResourceType + "]";
+        }
+    }
+}
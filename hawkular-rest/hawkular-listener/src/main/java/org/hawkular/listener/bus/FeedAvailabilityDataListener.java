@@ -16,29 +16,48 @@
  */
 package org.hawkular.listener.bus;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Objects;
 
 import javax.ejb.ActivationConfigProperty;
 import javax.ejb.EJB;
 import javax.ejb.MessageDriven;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.jms.JMSException;
+import javax.jms.Message;
 import javax.jms.MessageListener;
+import javax.jms.TextMessage;
 
 import org.hawkular.bus.common.consumer.BasicMessageListener;
-import org.hawkular.listener.cache.BackfillCache;
 import org.hawkular.listener.cache.BackfillCacheManager;
+import org.hawkular.listener.cache.FeedPingQueue;
 import org.hawkular.metrics.component.publish.AvailDataMessage;
-import org.hawkular.metrics.component.publish.AvailDataMessage.AvailData;
 import org.hawkular.metrics.component.publish.AvailDataMessage.SingleAvail;
 import org.jboss.logging.Logger;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
 /**
  * <p>
  * A listener for Availability data published from Hawkular Metrics. Tracks availability "pings" from feeds via
  * a cluster-wide cache.  Looks for non-reporting feeds in order to perform backfill operations. To backfill a feed
  * is to set the feed to DOWN avail and its resources to UNKNOWN avail.
  * </p>
+ * <p>
+ * Feed pings are a tiny fraction of the avail data on the topic, so text messages are not fully deserialized.
+ * Messages not mentioning a feed ping metric are discarded without parsing, the others are scanned with a streaming
+ * parser that extracts only the UP feed pings. If the scan fails the message falls back to full deserialization.
+ * </p>
+ * <p>
+ * The pings are handed off to the {@link FeedPingQueue}, the cache work is not performed on the MDB thread. Pings are
+ * never shed, a ping is what keeps a live feed from being backfilled. While the {@link AdmissionControl} reports the
+ * downstream work as behind, message delivery is slowed down or held.
+ * </p>
  * This is useful only when deploying into the Hawkular Bus with Hawkular Metrics. The expected message payload should
  * be JSON representation of {@link AvailDataMessage}.
  *
@@ -53,25 +72,200 @@ public class FeedAvailabilityDataListener extends BasicMessageListener<AvailData
 
     private static final String UP = "UP";
 
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @EJB
+    FeedPingQueue feedPingQueue;
+
     @EJB
-    BackfillCache backfillCacheManager;
+    AdmissionControl admissionControl;
+
+    @Override
+    public void onMessage(Message message) {
+        long receivedTime = System.currentTimeMillis();
+        // while the downstream work is behind, slow down the consumption of the topic
+        admissionControl.holdDelivery();
+
+        if (!(message instanceof TextMessage)) {
+            super.onMessage(message);
+            return;
+        }
+
+        String json;
+        try {
+            json = ((TextMessage) message).getText();
+        } catch (JMSException e) {
+            log.warnf("Unable to read avail data message: %s", e);
+            return;
+        }
+
+        // the vast majority of messages carry no feed pings at all, skip them without parsing
+        if (null == json || !json.contains(BackfillCacheManager.FEED_PREFIX)) {
+            return;
+        }
+
+        List<FeedPing> pings;
+        try {
+            pings = scanFeedPings(json);
+        } catch (IOException e) {
+            // not the shape the scan knows, leave it to the regular message handling
+            log.debugf("Failed streaming scan of avail data, falling back to full deserialization: %s", e);
+            super.onMessage(message);
+            return;
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace("Message received with [" + pings.size() + "] feed pings.");
+        }
+        offer(pings, receivedTime);
+    }
 
     @Override
     protected void onBasicMessage(AvailDataMessage msg) {
+        long receivedTime = System.currentTimeMillis();
 
-        AvailData availData = msg.getAvailData();
         if (log.isTraceEnabled()) {
-            log.trace("Message received with [" + availData.getData().size() + "] avails.");
+            log.trace("Message received with [" + msg.getAvailData().getData().size() + "] avails.");
+        }
+        offer(feedPings(msg), receivedTime);
+    }
+
+    private void offer(List<FeedPing> pings, long receivedTime) {
+        for (FeedPing ping : pings) {
+            feedPingQueue.offer(ping.tenantId, ping.metricId, receivedTime);
+        }
+    }
+
+    // ignore non-ping or non-up avail
+    private static boolean isFeedPing(String metricId, String avail) {
+        return null != metricId && metricId.startsWith(BackfillCacheManager.FEED_PREFIX) && UP.equals(avail);
+    }
+
+    /**
+     * @return the UP feed pings of a fully deserialized message, in the order of the message
+     */
+    static List<FeedPing> feedPings(AvailDataMessage msg) {
+        List<FeedPing> result = new ArrayList<>(1);
+        for (SingleAvail a : msg.getAvailData().getData()) {
+            if (null != a && isFeedPing(a.getId(), a.getAvail())) {
+                result.add(new FeedPing(a.getTenantId(), a.getId()));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Scan the JSON of an {@link AvailDataMessage} and return only the UP feed pings, as {@link #feedPings} would
+     * for the deserialized message. All other avails, and all other message fields, are skipped without being
+     * materialized. Elements of the <code>data</code> array that are not objects are skipped with their content.
+     *
+     * @throws IOException if the JSON is malformed or has no <code>availData.data</code> array
+     */
+    static List<FeedPing> scanFeedPings(String json) throws IOException {
+        List<FeedPing> result = new ArrayList<>(1);
+        boolean dataFound = false;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected JSON object for AvailDataMessage");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if ("availData".equals(field) && token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String dataField = parser.getCurrentName();
+                        token = parser.nextToken();
+                        if ("data".equals(dataField) && token == JsonToken.START_ARRAY) {
+                            dataFound = true;
+                            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                                if (token == JsonToken.START_OBJECT) {
+                                    scanSingleAvail(parser, result);
+                                } else if (token == null) {
+                                    throw new IOException("Unexpected end of the avail data");
+                                } else {
+                                    parser.skipChildren();
+                                }
+                            }
+                        } else {
+                            parser.skipChildren();
+                        }
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
         }
+        if (!dataFound) {
+            throw new IOException("No availData.data array in AvailDataMessage");
+        }
+        return result;
+    }
 
-        List<SingleAvail> data = availData.getData();
-        for (SingleAvail a : data) {
-            String metricId = a.getId();
-            // ignore non-ping or non-up avail
-            if (metricId.startsWith(BackfillCacheManager.FEED_PREFIX) && UP.equals(a.getAvail())) {
-                backfillCacheManager.updateFeedAvailability(a.getTenantId(), metricId);
+    private static void scanSingleAvail(JsonParser parser, List<FeedPing> result) throws IOException {
+        String tenantId = null;
+        String metricId = null;
+        String avail = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken token = parser.nextToken();
+            switch (field) {
+                case "tenantId":
+                    tenantId = textOf(parser, token);
+                    break;
+                case "id":
+                    metricId = textOf(parser, token);
+                    break;
+                case "avail":
+                    avail = textOf(parser, token);
+                    break;
+                default:
+                    parser.skipChildren();
             }
         }
+        if (isFeedPing(metricId, avail)) {
+            result.add(new FeedPing(tenantId, metricId));
+        }
+    }
+
+    // the scalar as text, as the deserialization would coerce it; structures are skipped
+    private static String textOf(JsonParser parser, JsonToken token) throws IOException {
+        if (token.isScalarValue()) {
+            return token == JsonToken.VALUE_NULL ? null : parser.getText();
+        }
+        parser.skipChildren();
+        return null;
+    }
+
+    static final class FeedPing {
+        private final String tenantId;
+        private final String metricId;
+
+        FeedPing(String tenantId, String metricId) {
+            this.tenantId = tenantId;
+            this.metricId = metricId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof FeedPing)) {
+                return false;
+            }
+            FeedPing other = (FeedPing) o;
+            return Objects.equals(tenantId, other.tenantId) && Objects.equals(metricId, other.metricId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(tenantId, metricId);
+        }
+
+        @Override
+        public String toString() {
+            return tenantId + "/" + metricId;
+        }
     }
 
 }
@@ -62,6 +62,9 @@ import org.jboss.logging.Logger;
  * <b>Cluster Discovery:</b> Look for "JGroups Channel" Resource Creations or Config changes. If we detect cluster
  * membership then ensure the cluster relationships exists between the servers.
  * </p>
+ * <p>
+ * Resource events for types not involved in the above actions are discarded without further processing.
+ * </p>
  * @author Jay Shaughnessy
  */
 @MessageDriven(messageListenerInterface = MessageListener.class, activationConfig = {
@@ -93,6 +96,15 @@ public class InventoryEventListener extends InventoryEventMessageListener {
 
     private static final String RELATIONSHIP = "isClusteredWith";
 
+    // Types for which resource events are handled, everything else is skipped up front
+    private static final Set<String> INTERESTING_TYPES;
+
+    static {
+        Set<String> types = new HashSet<>(SERVER_TYPES);
+        types.add(TYPE_JGROUPS_CHANNEL);
+        INTERESTING_TYPES = Collections.unmodifiableSet(types);
+    }
+
     @Override
     protected void onBasicMessage(InventoryEvent<?> event) {
         switch (event.getAction()) {
@@ -113,13 +125,16 @@ public class InventoryEventListener extends InventoryEventMessageListener {
     }
 
     private void handleResourceEvent(ResourceEvent event) {
-        String tenantId = null;
-        Resource r = null;
-        String type = null;
+        Resource r = event.getObject();
+        String type = typeIdOf(r);
+
+        // Most resource events are for uninteresting types, skip them before any further processing
+        if (null == type || !INTERESTING_TYPES.contains(type)) {
+            return;
+        }
+
         try {
-            tenantId = event.getTenant().getId();
-            r = event.getObject();
-            type = r.getType().getId();
+            String tenantId = event.getTenant().getId();
             boolean handled = false;
 
             handled |= checkServerEvent(event.getAction(), tenantId, r, type);
@@ -127,7 +142,7 @@ public class InventoryEventListener extends InventoryEventMessageListener {
             handled |= checkClusterEvent(event.getAction(), tenantId, r, type);
 
             if (!handled) {
-                log.debugf("Skipping Type [%s] ", type);
+                log.debugf("Skipping %s of Type [%s] ", event.getAction(), type);
             }
         } catch (EntityNotFoundException e) {
             log.errorf("Expected configuration for resourcetype [%s]", type); //TODO debug
@@ -136,6 +151,16 @@ public class InventoryEventListener extends InventoryEventMessageListener {
         }
     }
 
+    private String typeIdOf(Resource r) {
+        try {
+            ResourceType rt = (null == r) ? null : r.getType();
+            return (null == rt) ? null : rt.getId();
+        } catch (EntityNotFoundException e) {
+            // the type is not available on the event, it can't be one we handle
+            return null;
+        }
+    }
+
     private boolean checkServerEvent(Enumerated action, String tenantId, Resource r, String type) {
         switch (action) {
             case CREATED:
@@ -24,6 +24,7 @@ import javax.naming.InitialContext;
 import org.hawkular.alerts.api.model.event.Event;
 import org.hawkular.alerts.api.services.AlertsService;
 import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.listener.bus.CommandEventRegistry.EventTemplate;
 import org.jboss.logging.Logger;
 
 public class ListenerUtils {
@@ -47,8 +48,22 @@ public class ListenerUtils {
      */
     public void addEvent(String resourcePathStr, String category, String text, String miqEventType,
             String miqResourceType, String miqMessage) {
-        addEvent(CanonicalPath.fromString(resourcePathStr), category, text, miqEventType, miqResourceType,
-                miqMessage);
+        addEvent(CanonicalPath.fromString(resourcePathStr), resourcePathStr, category, text, miqEventType,
+                miqResourceType, miqMessage);
+    }
+
+    /**
+     * @param resourcePath the parsed resource canonical path
+     * @param resourcePathStr the resource canonical path string, as received
+     * @param template the pre-resolved event template supplying category and MIQ types
+     * @param text the event text
+     * @param isError whether to use the error or ok MIQ event type
+     * @param miqMessage optional message for the MIQ event
+     */
+    public void addEvent(CanonicalPath resourcePath, String resourcePathStr, EventTemplate template, String text,
+            boolean isError, String miqMessage) {
+        addEvent(resourcePath, resourcePathStr, template.getCategory(), text, template.getMiqEventType(isError),
+                template.getMiqResourceType(), miqMessage);
     }
 
     /**
@@ -61,13 +76,19 @@ public class ListenerUtils {
      */
     public void addEvent(CanonicalPath resourcePath, String category, String text, String miqEventType,
             String miqResourceType, String miqMessage) {
+        addEvent(resourcePath, resourcePath.toString(), category, text, miqEventType, miqResourceType, miqMessage);
+    }
+
+    // the path string is passed along with the parsed path so that it need not be re-serialized
+    private void addEvent(CanonicalPath resourcePath, String resourcePathStr, String category, String text,
+            String miqEventType, String miqResourceType, String miqMessage) {
         try {
             init();
 
             String tenantId = resourcePath.ids().getTenantId();
             String eventId = UUID.randomUUID().toString();
             Event event = new Event(tenantId, eventId, category, text);
-            event.addContext("resource_path", resourcePath.toString());
+            event.addContext("resource_path", resourcePathStr);
             event.addContext("message", miqMessage);
             event.addTag("miq.event_type", miqEventType);
             event.addTag("miq.resource_type", miqResourceType);
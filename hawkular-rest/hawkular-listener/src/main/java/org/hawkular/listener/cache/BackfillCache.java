@@ -29,8 +29,9 @@ public interface BackfillCache extends ClusterCache {
      *
      * @param tenantId The tenant for the feed
      * @param feedAvailabilityMetricId The feed avail metricId
+     * @param pingTime The time the ping was received. A ping older than the last recorded one is ignored.
      */
-    void updateFeedAvailability(String tenantId, String feedAvailabilityMetricId);
+    void updateFeedAvailability(String tenantId, String feedAvailabilityMetricId, long pingTime);
 
     /**
      * Request an immediate backfill for the given feed [on all of its registered tenants]. Typically
@@ -41,4 +42,15 @@ public interface BackfillCache extends ClusterCache {
      */
     void forceBackfill(String feedId);
 
+    /**
+     * @return the number of backfills started but not yet completed (or failed).
+     */
+    int getPendingBackfillCount();
+
+    /**
+     * @return a moving average of the time taken to perform a backfill, from start to the completion of the avail
+     * persistence, in ms.
+     */
+    long getBackfillLatencyMs();
+
 }
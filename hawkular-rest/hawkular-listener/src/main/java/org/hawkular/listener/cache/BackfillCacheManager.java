@@ -26,6 +26,8 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
@@ -45,6 +47,7 @@ import org.hawkular.inventory.api.Metrics;
 import org.hawkular.inventory.api.filters.With;
 import org.hawkular.inventory.api.model.Feed;
 import org.hawkular.inventory.api.model.MetricDataType;
+import org.hawkular.listener.bus.AdmissionControl;
 import org.hawkular.metrics.core.service.Functions;
 import org.hawkular.metrics.core.service.MetricsService;
 import org.hawkular.metrics.model.AvailabilityType;
@@ -210,6 +213,10 @@ public class BackfillCacheManager implements BackfillCache {
 
     private Map<CacheKey, ScheduledFuture<?>> jobMap = new ConcurrentHashMap<>();
 
+    // Backfill progress, used to detect a slow downstream (inventory, metrics storage)
+    private final AtomicInteger pendingBackfills = new AtomicInteger();
+    private final AtomicLong backfillLatencyMs = new AtomicLong();
+
     // Lazy init these when we actually need to do a backfill
     private Inventory inventory;
     private MetricsService metricsService;
@@ -229,6 +236,12 @@ public class BackfillCacheManager implements BackfillCache {
     @EJB
     BackfillCache self;
 
+    @EJB
+    FeedPingQueue feedPingQueue;
+
+    @EJB
+    AdmissionControl admissionControl;
+
     @PostConstruct
     public void init() {
         // Cache manager has an active transport (i.e. jgroups) when is configured on distributed mode
@@ -300,7 +313,7 @@ public class BackfillCacheManager implements BackfillCache {
 
     @Override
     @Lock(LockType.READ)
-    public void updateFeedAvailability(String tenantId, String feedAvailabilityMetricId) {
+    public void updateFeedAvailability(String tenantId, String feedAvailabilityMetricId, long pingTime) {
         if (!isResponsible(feedAvailabilityMetricId)) {
             return;
         }
@@ -310,14 +323,17 @@ public class BackfillCacheManager implements BackfillCache {
         try {
             CacheValue value = backfillCache.get(key);
             if (null == value) {
-                backfillCache.put(key, new CacheValue());
+                backfillCache.put(key, new CacheValue(pingTime));
 
             } else {
-                long now = System.currentTimeMillis();
+                // an older ping, delivered out of order
+                if (pingTime <= value.getLastUpdateTime()) {
+                    return;
+                }
 
                 // On the second ping, if valid, start the backfill check job
                 if (!value.hasBackfillJob()) {
-                    long pingPeriodMs = now - value.getLastUpdateTime();
+                    long pingPeriodMs = pingTime - value.getLastUpdateTime();
 
                     if (pingPeriodMs <= (PING_PERIOD_MIN_SECS * 1000)) {
                         log.debugf("Starting Backfill Job for %s", key);
@@ -334,7 +350,7 @@ public class BackfillCacheManager implements BackfillCache {
                 }
 
                 // Update the cache with the latest ping
-                value.setLastUpdateTime(now);
+                value.setLastUpdateTime(pingTime);
                 backfillCache.put(key, value);
             }
         } catch (Exception e) {
@@ -379,7 +395,37 @@ public class BackfillCacheManager implements BackfillCache {
 
     }
 
+    @Override
+    @Lock(LockType.READ)
+    public int getPendingBackfillCount() {
+        return pendingBackfills.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getBackfillLatencyMs() {
+        return backfillLatencyMs.get();
+    }
+
+    private void recordBackfill(long startTime) {
+        long latencyMs = System.currentTimeMillis() - startTime;
+        // exponentially weighted, so that a recovered downstream is reflected after a few backfills
+        backfillLatencyMs.updateAndGet(avg -> (avg == 0) ? latencyMs : ((avg * 4) + latencyMs) / 5);
+        pendingBackfills.decrementAndGet();
+    }
+
     private void doBackfill(CacheKey key, CacheValue value) {
+        long startTime = System.currentTimeMillis();
+        pendingBackfills.incrementAndGet();
+        try {
+            doBackfill(key, value, startTime);
+        } catch (RuntimeException e) {
+            recordBackfill(startTime);
+            throw e;
+        }
+    }
+
+    private void doBackfill(CacheKey key, CacheValue value, long startTime) {
         // only backfill once, so stop the backfill job
         cancelJob(key);
 
@@ -435,6 +481,7 @@ public class BackfillCacheManager implements BackfillCache {
 
             @Override
             public void onCompleted() {
+                recordBackfill(startTime);
                 if (log.isDebugEnabled()) {
                     log.debugf("Successful backfill of Feed %s with %s", key, availabilities);
                 } else {
@@ -444,6 +491,7 @@ public class BackfillCacheManager implements BackfillCache {
 
             @Override
             public void onError(Throwable arg0) {
+                recordBackfill(startTime);
                 log.warnf("Failed to backfill Feed %s with %s: %s", key, availabilities, arg0);
             }
 
@@ -511,6 +559,19 @@ public class BackfillCacheManager implements BackfillCache {
                 return;
             }
 
+            // a ping received but still waiting in the ingestion queue, the feed is reporting
+            if (feedPingQueue.isPending(key.getTenantId(), key.getMetricId())) {
+                log.debugf("Feed %s has a pending ping, not backfilled", key);
+                return;
+            }
+
+            // the pings are lagging, a quiet feed may not be a down feed, give it more time
+            if (!admissionControl.admitBackfill(quietPeriodMs, maxQuietPeriodMs)) {
+                log.debugf("Feed %s has not reported for %d ms, backfill deferred while %s", key, quietPeriodMs,
+                        admissionControl.getState());
+                return;
+            }
+
             // backfill situation
             log.infof("Feed %s has not reported for %d ms and will be backfilled.", key, quietPeriodMs);
             if (!initServices()) {
@@ -589,8 +650,12 @@ public class BackfillCacheManager implements BackfillCache {
         private long maxQuietPeriodMs; // <= 0 when there is no active timer
 
         public CacheValue() {
+            this(System.currentTimeMillis());
+        }
+
+        public CacheValue(long lastUpdateTime) {
             super();
-            this.lastUpdateTime = System.currentTimeMillis();
+            this.lastUpdateTime = lastUpdateTime;
             this.maxQuietPeriodMs = 0;
         }
 
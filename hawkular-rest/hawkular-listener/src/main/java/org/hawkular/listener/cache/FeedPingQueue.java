@@ -0,0 +1,44 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.cache;
+
+/**
+ * Interface for the in-process feed ping ingestion stage. Pings are handed off by the JMS listeners and applied
+ * to the {@link BackfillCache} asynchronously. A ping is never dropped, a newer ping for a feed replaces the one
+ * still waiting to be applied.
+ *
+ * @author agent
+ */
+public interface FeedPingQueue extends FeedPingQueueMXBean {
+
+    /**
+     * Enqueue an UP availability ping for the given feedAvailabilityMetricId. Never blocks.
+     *
+     * @param tenantId The tenant for the feed
+     * @param feedAvailabilityMetricId The feed avail metricId
+     * @param receivedTime The time the ping was received, it is applied as the time of the ping
+     */
+    void offer(String tenantId, String feedAvailabilityMetricId, long receivedTime);
+
+    /**
+     * @param tenantId The tenant for the feed
+     * @param feedAvailabilityMetricId The feed avail metricId
+     * @return true if a ping for the feed was received but is not yet applied to the {@link BackfillCache}
+     */
+    boolean isPending(String tenantId, String feedAvailabilityMetricId);
+
+}
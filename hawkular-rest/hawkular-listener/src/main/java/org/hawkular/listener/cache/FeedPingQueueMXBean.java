@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.cache;
+
+/**
+ * Management view of the {@link FeedPingQueue}, registered as <code>org.hawkular.services:type=FeedPingQueue</code>.
+ *
+ * @author agent
+ */
+public interface FeedPingQueueMXBean {
+
+    /**
+     * @return the number of shards, each applied by at most one task at a time
+     */
+    int getShardCount();
+
+    /**
+     * @return the number of feeds with a ping waiting to be applied, over all shards
+     */
+    int getQueueSize();
+
+    /**
+     * @return the number of feeds with a ping waiting to be applied, on each shard
+     */
+    int[] getShardQueueSizes();
+
+    /**
+     * @return the time the longest waiting shard has been waiting to be applied, in ms, 0 if all shards are idle
+     */
+    long getQueueLagMs();
+
+    /**
+     * @return the number of pings replaced by a newer ping for the same feed before being applied
+     */
+    long getCoalescedCount();
+
+    /**
+     * @return the number of pings applied to the backfill cache
+     */
+    long getProcessedCount();
+
+    /**
+     * @return the number of times the executor rejected a shard task, the shard is retried on its next ping
+     */
+    long getRejectedCount();
+}
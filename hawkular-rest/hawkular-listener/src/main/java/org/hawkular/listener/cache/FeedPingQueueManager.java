@@ -0,0 +1,290 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.EJB;
+import javax.ejb.Local;
+import javax.ejb.Lock;
+import javax.ejb.LockType;
+import javax.ejb.Singleton;
+import javax.ejb.Startup;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.hawkular.listener.cache.BackfillCacheManager.CacheKey;
+import org.jboss.logging.Logger;
+
+/**
+ * <p>
+ * Implementation of {@link FeedPingQueue}. Pings are partitioned by feed avail metricId over a fixed number of
+ * shards. Each shard keeps only the newest pending ping of each feed, so its size is bounded by the number of feeds
+ * and no ping ever needs to be dropped. A shard with pending pings is applied by a task of the container's managed
+ * executor, at most one task per shard at a time, so a feed's cache entry has a single writer. A ping is applied with
+ * the time it was received, the time it waits in the queue doesn't lengthen the apparent ping period.</p>
+ * <p>
+ * The following system properties can be defined to configure the ingestion stage:
+ * <pre>
+ * hawkular-services.feed-ping.shards
+ *   The number of shards, and so the max number of executor threads applying pings.
+ *   Default = number of available processors
+ *
+ * hawkular-services.feed-ping.batch-size
+ *   The max number of pings a task applies before yielding its executor thread.
+ *   Default = 256
+ * </pre></p>
+ * <p>
+ * Queue occupancy, lag and counters are available via JMX, see {@link FeedPingQueueMXBean}.</p>
+ *
+ * @author agent
+ */
+@Local(FeedPingQueue.class)
+@Startup
+@Singleton
+@TransactionAttribute(value = TransactionAttributeType.NOT_SUPPORTED)
+public class FeedPingQueueManager implements FeedPingQueue {
+
+    private static final String DEFAULT_BATCH_SIZE = "256";
+
+    private static final String PROP_SHARDS = "hawkular-services.feed-ping.shards";
+    private static final String PROP_BATCH_SIZE = "hawkular-services.feed-ping.batch-size";
+
+    private static final String MBEAN_NAME = "org.hawkular.services:type=FeedPingQueue";
+
+    private final Logger log = Logger.getLogger(FeedPingQueueManager.class);
+
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    private int batchSize;
+
+    private Shard[] shards;
+
+    private volatile boolean running;
+
+    @Resource
+    ManagedExecutorService executor;
+
+    @EJB
+    BackfillCache backfillCacheManager;
+
+    @PostConstruct
+    public void init() {
+        int shardCount;
+        try {
+            shardCount = Integer
+                    .valueOf(System.getProperty(PROP_SHARDS,
+                            String.valueOf(Runtime.getRuntime().availableProcessors())))
+                    .intValue();
+        } catch (Exception e) {
+            shardCount = Runtime.getRuntime().availableProcessors();
+        }
+        try {
+            batchSize = Integer
+                    .valueOf(System.getProperty(PROP_BATCH_SIZE, DEFAULT_BATCH_SIZE))
+                    .intValue();
+        } catch (Exception e) {
+            batchSize = Integer.valueOf(DEFAULT_BATCH_SIZE);
+        }
+        shardCount = Math.max(1, shardCount);
+        batchSize = Math.max(1, batchSize);
+
+        log.infof("Starting Feed Ping Queue with %d shards, batch size %d", shardCount, batchSize);
+
+        running = true;
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; ++i) {
+            shards[i] = new Shard();
+        }
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            mbs.registerMBean(new StandardMBean(this, FeedPingQueueMXBean.class, true), new ObjectName(MBEAN_NAME));
+        } catch (Exception e) {
+            log.warnf("Failed to register %s, feed ping queue statistics will not be available: %s", MBEAN_NAME, e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        running = false;
+
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            log.debugf("Failed to unregister %s: %s", MBEAN_NAME, e);
+        }
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public void offer(String tenantId, String feedAvailabilityMetricId, long receivedTime) {
+        shardFor(feedAvailabilityMetricId).offer(new CacheKey(tenantId, feedAvailabilityMetricId), receivedTime);
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public boolean isPending(String tenantId, String feedAvailabilityMetricId) {
+        return shardFor(feedAvailabilityMetricId).pending
+                .containsKey(new CacheKey(tenantId, feedAvailabilityMetricId));
+    }
+
+    private Shard shardFor(String feedAvailabilityMetricId) {
+        return shards[(feedAvailabilityMetricId.hashCode() & Integer.MAX_VALUE) % shards.length];
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public int getQueueSize() {
+        int result = 0;
+        for (Shard shard : shards) {
+            result += shard.pending.size();
+        }
+        return result;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public int[] getShardQueueSizes() {
+        int[] result = new int[shards.length];
+        for (int i = 0; i < shards.length; ++i) {
+            result[i] = shards[i].pending.size();
+        }
+        return result;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getQueueLagMs() {
+        long now = System.currentTimeMillis();
+        long result = 0L;
+        for (Shard shard : shards) {
+            long scheduledTime = shard.scheduledTime;
+            if (scheduledTime > 0L) {
+                result = Math.max(result, now - scheduledTime);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getCoalescedCount() {
+        return coalesced.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getProcessedCount() {
+        return processed.get();
+    }
+
+    @Override
+    @Lock(LockType.READ)
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    /**
+     * The newest pending ping of each feed of the shard, and the task applying them.
+     */
+    private class Shard implements Runnable {
+        private final ConcurrentMap<CacheKey, Long> pending = new ConcurrentHashMap<>();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // when the task was submitted, 0 while the shard is idle
+        private volatile long scheduledTime;
+
+        void offer(CacheKey key, long receivedTime) {
+            if (null != pending.putIfAbsent(key, receivedTime)) {
+                // concurrent MDB threads may deliver the pings of a feed out of order, keep the newest
+                pending.merge(key, receivedTime, Math::max);
+                coalesced.incrementAndGet();
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (running && scheduled.compareAndSet(false, true)) {
+                scheduledTime = System.currentTimeMillis();
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // the pings stay pending, the shard is submitted again with its next ping
+                    scheduledTime = 0L;
+                    scheduled.set(false);
+                    rejected.incrementAndGet();
+                    log.debugf("Feed ping task rejected, %d feeds pending: %s", pending.size(), e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                int applied = 0;
+                Iterator<CacheKey> keys = pending.keySet().iterator();
+                while (running && applied < batchSize && keys.hasNext()) {
+                    CacheKey key = keys.next();
+                    Long receivedTime = pending.remove(key);
+                    if (null == receivedTime) {
+                        continue;
+                    }
+                    try {
+                        backfillCacheManager.updateFeedAvailability(key.getTenantId(), key.getMetricId(),
+                                receivedTime);
+                        processed.incrementAndGet();
+                    } catch (Exception e) {
+                        log.warnf("Failed to apply feed ping for %s: %s", key, e);
+                    }
+                    ++applied;
+                }
+            } finally {
+                scheduledTime = 0L;
+                scheduled.set(false);
+            }
+            // the rest of the shard, or the pings offered while the task was finishing
+            if (!pending.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hawkular.listener.bus.AdmissionControlMXBean.State;
+import org.hawkular.listener.cache.BackfillCache;
+import org.hawkular.listener.cache.FeedPingQueue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Admission decisions under simulated queue lag, backfill load and latency, on a simulated clock.
+ *
+ * @author agent
+ */
+public class AdmissionControlManagerTest {
+
+    private static final String PROP_THROTTLE_QUEUE_LAG_MS = "hawkular-services.admission.throttle-queue-lag-ms";
+    private static final String PROP_MAX_PAUSE_MS = "hawkular-services.admission.max-pause-ms";
+
+    private long queueLagMs;
+    private int pendingBackfills;
+    private long backfillLatencyMs;
+
+    private long clock = 1000000L;
+    private final List<Long> sleeps = new ArrayList<>();
+    private Runnable onSleep;
+
+    private AdmissionControlManager admission;
+
+    @Before
+    public void setUp() {
+        System.clearProperty(PROP_THROTTLE_QUEUE_LAG_MS);
+        System.clearProperty(PROP_MAX_PAUSE_MS);
+    }
+
+    @After
+    public void tearDown() {
+        if (null != admission) {
+            admission.close();
+        }
+        System.clearProperty(PROP_THROTTLE_QUEUE_LAG_MS);
+        System.clearProperty(PROP_MAX_PAUSE_MS);
+    }
+
+    @Test
+    public void normalAdmitsEveryQuietFeed() {
+        admission = start();
+        assertEquals(State.NORMAL, admission.getState());
+        assertTrue(admission.admitBackfill(1001L, 1000L));
+        assertEquals(0L, admission.getDeferredBackfillCount());
+    }
+
+    @Test
+    public void queueLagThrottles() {
+        queueLagMs = 2000L;
+        admission = start();
+        assertEquals(State.THROTTLED, admission.getState());
+        assertFalse(admission.admitBackfill(1500L, 1000L));
+        assertFalse(admission.admitBackfill(2000L, 1000L));
+        assertTrue("past the stretched quiet period", admission.admitBackfill(2001L, 1000L));
+        assertEquals(2L, admission.getDeferredBackfillCount());
+    }
+
+    @Test
+    public void backfillLatencyThrottles() {
+        backfillLatencyMs = 10000L;
+        admission = start();
+        assertEquals(State.THROTTLED, admission.getState());
+    }
+
+    @Test
+    public void pendingBackfillsThrottleThenPause() {
+        pendingBackfills = 50;
+        admission = start();
+        assertEquals(State.THROTTLED, admission.getState());
+
+        pendingBackfills = 200;
+        clock += 250L;
+        assertEquals(State.PAUSED, admission.getState());
+        assertFalse(admission.admitBackfill(4000L, 1000L));
+        assertTrue(admission.admitBackfill(4001L, 1000L));
+    }
+
+    @Test
+    public void queueLagPauses() {
+        queueLagMs = 10000L;
+        admission = start();
+        assertEquals(State.PAUSED, admission.getState());
+    }
+
+    @Test
+    public void stateIsReevaluatedAtMostEvery250ms() {
+        admission = start();
+        assertEquals(State.NORMAL, admission.getState());
+
+        queueLagMs = 2000L;
+        clock += 249L;
+        assertEquals(State.NORMAL, admission.getState());
+        clock += 1L;
+        assertEquals(State.THROTTLED, admission.getState());
+
+        queueLagMs = 0L;
+        clock += 250L;
+        assertEquals(State.NORMAL, admission.getState());
+    }
+
+    @Test
+    public void thresholdsAreReadAtStartup() {
+        System.setProperty(PROP_THROTTLE_QUEUE_LAG_MS, "500");
+        queueLagMs = 500L;
+        admission = start();
+        assertEquals(State.THROTTLED, admission.getState());
+    }
+
+    @Test
+    public void normalDeliveryIsNotHeld() {
+        admission = start();
+        assertEquals(0L, admission.holdDelivery());
+        assertTrue(sleeps.isEmpty());
+        assertEquals(0L, admission.getHeldDeliveryCount());
+    }
+
+    @Test
+    public void throttledDeliveryIsDelayed() {
+        queueLagMs = 2000L;
+        admission = start();
+        assertEquals(100L, admission.holdDelivery());
+        assertEquals(1, sleeps.size());
+        assertEquals(1L, admission.getHeldDeliveryCount());
+        assertEquals(100L, admission.getDeliveryHoldTimeMs());
+    }
+
+    @Test
+    public void pausedDeliveryIsHeldUntilTheLoadDrops() {
+        pendingBackfills = 200;
+        admission = start();
+        onSleep = () -> {
+            if (sleeps.size() == 3) {
+                pendingBackfills = 0;
+            }
+        };
+        assertEquals(750L, admission.holdDelivery());
+        assertEquals(State.NORMAL, admission.getState());
+        assertEquals(750L, admission.getDeliveryHoldTimeMs());
+    }
+
+    @Test
+    public void pauseIsBounded() {
+        System.setProperty(PROP_MAX_PAUSE_MS, "1100");
+        queueLagMs = 10000L;
+        admission = start();
+        assertEquals(1100L, admission.holdDelivery());
+        assertEquals(Long.valueOf(100L), sleeps.get(sleeps.size() - 1));
+        assertEquals(State.PAUSED, admission.getState());
+    }
+
+    @Test
+    public void interruptedHoldReturns() {
+        queueLagMs = 10000L;
+        admission = start();
+        onSleep = () -> Thread.currentThread().interrupt();
+        try {
+            assertEquals(250L, admission.holdDelivery());
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private AdmissionControlManager start() {
+        AdmissionControlManager result = new AdmissionControlManager() {
+            @Override
+            long now() {
+                return clock;
+            }
+
+            @Override
+            void sleep(long ms) throws InterruptedException {
+                sleeps.add(ms);
+                clock += ms;
+                if (null != onSleep) {
+                    onSleep.run();
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+        };
+        result.feedPingQueue = (FeedPingQueue) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { FeedPingQueue.class }, (proxy, method, args) -> {
+                    if (!"getQueueLagMs".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    return queueLagMs;
+                });
+        result.backfillCacheManager = (BackfillCache) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { BackfillCache.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getPendingBackfillCount":
+                            return pendingBackfills;
+                        case "getBackfillLatencyMs":
+                            return backfillLatencyMs;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+        result.init();
+        return result;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.bus;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.hawkular.bus.common.AbstractMessage;
+import org.hawkular.listener.bus.FeedAvailabilityDataListener.FeedPing;
+import org.hawkular.metrics.component.publish.AvailDataMessage;
+import org.junit.Test;
+
+/**
+ * The streaming scan of the avail data has to find the feed pings the full deserialization finds.
+ *
+ * @author agent
+ */
+public class FeedAvailabilityDataListenerTest {
+
+    private static final String PING_1 = "hawkular-feed-availability-feed1";
+    private static final String PING_2 = "hawkular-feed-availability-feed2";
+
+    @Test
+    public void singlePing() throws Exception {
+        assertSameAsDeserialized(message(avail("t1", PING_1, "UP")), ping("t1", PING_1));
+    }
+
+    @Test
+    public void noPings() throws Exception {
+        assertSameAsDeserialized(message());
+        assertSameAsDeserialized(message(avail("t1", "cpu-1", "UP"), avail("t1", "cpu-2", "DOWN")));
+    }
+
+    @Test
+    public void pingsAmongOtherAvails() throws Exception {
+        String json = message(
+                avail("t1", "cpu-1", "UP"),
+                avail("t1", PING_1, "UP"),
+                avail("t1", PING_2, "DOWN"),
+                avail("t2", PING_1, "UP"),
+                avail("t1", "hawkular-feed-availability", "UP"),
+                avail("t1", "not-hawkular-feed-availability-feed1", "UP"),
+                avail("t2", PING_2, "up"),
+                avail("t2", PING_2, "UP"));
+        assertSameAsDeserialized(json, ping("t1", PING_1), ping("t2", PING_1), ping("t2", PING_2));
+    }
+
+    @Test
+    public void fieldsInAnyOrderAndNulls() throws Exception {
+        String json = "{\"availData\":{\"data\":["
+                + "{\"avail\":\"UP\",\"timestamp\":1,\"id\":\"" + PING_1 + "\",\"tenantId\":\"t1\"},"
+                + "{\"timestamp\":2,\"avail\":\"UP\",\"tenantId\":null,\"id\":\"" + PING_2 + "\"},"
+                + "{\"tenantId\":\"t1\",\"id\":null,\"avail\":\"UP\"},"
+                + "{\"tenantId\":\"t1\",\"id\":\"" + PING_1 + "\",\"avail\":null},"
+                + "{\"tenantId\":\"t1\",\"id\":\"" + PING_1 + "\"},"
+                + "null,"
+                + "{ \"tenantId\" : \"t\\u0031\" , \"id\" : \"hawkular-feed-availability-\\u0066eed2\" ,"
+                + " \"avail\" : \"UP\" }"
+                + "]}}";
+        assertSameAsDeserialized(json, ping("t1", PING_1), ping(null, PING_2), ping("t1", PING_2));
+    }
+
+    @Test
+    public void nonObjectElementsAreSkippedWithTheirContent() throws Exception {
+        // a ping nested in a non-object element must neither count nor desync the scan of the elements after it
+        String json = "{\"availData\":{\"data\":["
+                + "\"" + PING_1 + "\",42,true,null,"
+                + "[" + avail("t1", PING_1, "UP") + ",[" + avail("t1", PING_1, "UP") + "]],"
+                + avail("t2", PING_2, "UP") + ","
+                + "[]," + avail("t3", PING_2, "UP")
+                + "]}}";
+        assertEquals(asList(ping("t2", PING_2), ping("t3", PING_2)), FeedAvailabilityDataListener.scanFeedPings(json));
+    }
+
+    @Test
+    public void pingsOutsideOfTheDataAreIgnored() throws Exception {
+        String json = "{\"headers\":{\"data\":[" + avail("t1", PING_1, "UP") + "]},"
+                + "\"availData\":{"
+                + "\"meta\":{\"data\":[" + avail("t1", PING_1, "UP") + "]},"
+                + "\"other\":[" + avail("t1", PING_1, "UP") + "],"
+                + "\"data\":[{\"tenantId\":\"t2\",\"tags\":{\"id\":\"" + PING_1 + "\",\"avail\":\"UP\"},"
+                + "\"id\":\"" + PING_2 + "\",\"avail\":\"UP\"}],"
+                + "\"after\":{\"data\":[" + avail("t1", PING_1, "UP") + "]}"
+                + "},"
+                + "\"trailer\":[" + avail("t1", PING_1, "UP") + "]}";
+        assertEquals(asList(ping("t2", PING_2)), FeedAvailabilityDataListener.scanFeedPings(json));
+    }
+
+    @Test
+    public void structuredValuesAreNoPings() throws Exception {
+        String json = "{\"availData\":{\"data\":["
+                + "{\"tenantId\":\"t1\",\"id\":[\"" + PING_1 + "\"],\"avail\":\"UP\"},"
+                + "{\"tenantId\":\"t1\",\"id\":\"" + PING_1 + "\",\"avail\":{\"value\":\"UP\"}},"
+                + "{\"tenantId\":{\"id\":\"t1\"},\"id\":\"" + PING_2 + "\",\"avail\":\"UP\"}"
+                + "]}}";
+        assertEquals(asList(ping(null, PING_2)), FeedAvailabilityDataListener.scanFeedPings(json));
+    }
+
+    @Test
+    public void unknownShapesFallBack() {
+        // these are left to the full deserialization
+        assertScanFails("[" + avail("t1", PING_1, "UP") + "]");
+        assertScanFails("{\"data\":[" + avail("t1", PING_1, "UP") + "]}");
+        assertScanFails("{\"availData\":[" + avail("t1", PING_1, "UP") + "]}");
+        assertScanFails("{\"availData\":{\"data\":" + avail("t1", PING_1, "UP") + "}}");
+        assertScanFails("{\"availData\":{\"data\":[" + avail("t1", PING_1, "UP"));
+        assertScanFails("{\"availData\":{\"data\":[{\"tenantId\":\"t1\",\"id\":\"" + PING_1 + "\"");
+    }
+
+    private static void assertSameAsDeserialized(String json, FeedPing... expected) throws IOException {
+        List<FeedPing> deserialized = FeedAvailabilityDataListener.feedPings(AbstractMessage.fromJSON(json,
+                AvailDataMessage.class));
+        assertEquals(json, asList(expected), deserialized);
+        assertEquals(json, deserialized, FeedAvailabilityDataListener.scanFeedPings(json));
+    }
+
+    private static void assertScanFails(String json) {
+        try {
+            List<FeedPing> pings = FeedAvailabilityDataListener.scanFeedPings(json);
+            fail("Scanned " + pings + " from " + json);
+        } catch (IOException expected) {
+            // falls back
+        }
+    }
+
+    private static String message(String... avails) {
+        return "{\"availData\":{\"data\":[" + String.join(",", avails.length == 0 ? emptyList() : asList(avails))
+                + "]}}";
+    }
+
+    private static String avail(String tenantId, String id, String avail) {
+        return "{\"tenantId\":\"" + tenantId + "\",\"id\":\"" + id + "\",\"timestamp\":1490000000000,\"avail\":\""
+                + avail + "\"}";
+    }
+
+    private static FeedPing ping(String tenantId, String id) {
+        return new FeedPing(tenantId, id);
+    }
+}
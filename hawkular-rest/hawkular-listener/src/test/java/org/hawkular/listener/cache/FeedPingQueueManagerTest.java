@@ -0,0 +1,258 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.listener.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.enterprise.concurrent.ManagedExecutorService;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Coalescing and drain scheduling of the feed ping queue, with the tasks run by hand or by a real pool.
+ *
+ * @author agent
+ */
+public class FeedPingQueueManagerTest {
+
+    private static final String PROP_SHARDS = "hawkular-services.feed-ping.shards";
+    private static final String PROP_BATCH_SIZE = "hawkular-services.feed-ping.batch-size";
+
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+    private final List<String> applied = new ArrayList<>();
+    private final Map<String, Long> latest = new ConcurrentHashMap<>();
+
+    private boolean rejecting;
+    private Runnable onApply;
+
+    private FeedPingQueueManager queue;
+
+    @Before
+    public void setUp() {
+        System.setProperty(PROP_SHARDS, "1");
+        System.clearProperty(PROP_BATCH_SIZE);
+    }
+
+    @After
+    public void tearDown() {
+        if (null != queue) {
+            queue.close();
+        }
+        System.clearProperty(PROP_SHARDS);
+        System.clearProperty(PROP_BATCH_SIZE);
+    }
+
+    @Test
+    public void configIsReadAtStartup() {
+        System.setProperty(PROP_SHARDS, "3");
+        queue = start(manualExecutor());
+        assertEquals(3, queue.getShardCount());
+        queue.close();
+
+        System.setProperty(PROP_SHARDS, "three");
+        queue = start(manualExecutor());
+        assertEquals(Runtime.getRuntime().availableProcessors(), queue.getShardCount());
+    }
+
+    @Test
+    public void keepsTheNewestPingOfEachFeed() {
+        queue = start(manualExecutor());
+        queue.offer("t1", "feed1", 100L);
+        queue.offer("t1", "feed1", 300L);
+        queue.offer("t1", "feed1", 200L);
+        queue.offer("t1", "feed2", 150L);
+        queue.offer("t2", "feed1", 50L);
+
+        assertEquals(3, queue.getQueueSize());
+        assertEquals(2L, queue.getCoalescedCount());
+        assertEquals("one task per shard", 1, tasks.size());
+
+        runTasks();
+        assertEquals(new HashSet<>(Arrays.asList("t1/feed1@300", "t1/feed2@150", "t2/feed1@50")),
+                new HashSet<>(applied));
+        assertEquals(3, applied.size());
+        assertEquals(3L, queue.getProcessedCount());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    public void isPendingUntilApplied() {
+        queue = start(manualExecutor());
+        assertFalse(queue.isPending("t1", "feed1"));
+
+        queue.offer("t1", "feed1", 100L);
+        assertTrue(queue.isPending("t1", "feed1"));
+        assertFalse("other tenant", queue.isPending("t2", "feed1"));
+        assertFalse("other feed", queue.isPending("t1", "feed2"));
+
+        runTasks();
+        assertFalse(queue.isPending("t1", "feed1"));
+    }
+
+    @Test
+    public void pingOfferedWhileTheTaskRunsIsApplied() {
+        queue = start(manualExecutor());
+        // the task is still marked as scheduled, so the offer does not submit another one
+        onApply = () -> {
+            onApply = null;
+            queue.offer("t1", "feed2", 200L);
+            assertEquals(0, tasks.size());
+        };
+        queue.offer("t1", "feed1", 100L);
+
+        runTasks();
+        assertTrue(applied.contains("t1/feed2@200"));
+        assertFalse(queue.isPending("t1", "feed2"));
+    }
+
+    @Test
+    public void fullShardIsDrainedInBatches() {
+        System.setProperty(PROP_BATCH_SIZE, "2");
+        queue = start(manualExecutor());
+        for (int i = 0; i < 5; ++i) {
+            queue.offer("t1", "feed" + i, 100L + i);
+        }
+
+        tasks.poll().run();
+        assertEquals(2, applied.size());
+        assertEquals("the rest is submitted again", 1, tasks.size());
+
+        runTasks();
+        assertEquals(5, applied.size());
+        assertEquals(0, queue.getQueueSize());
+    }
+
+    @Test
+    public void rejectedTaskLeavesThePingsPending() {
+        queue = start(manualExecutor());
+        rejecting = true;
+        queue.offer("t1", "feed1", 100L);
+        assertEquals(1L, queue.getRejectedCount());
+        assertTrue(queue.isPending("t1", "feed1"));
+
+        rejecting = false;
+        queue.offer("t1", "feed2", 200L);
+        runTasks();
+        assertEquals(new HashSet<>(Arrays.asList("t1/feed1@100", "t1/feed2@200")), new HashSet<>(applied));
+    }
+
+    @Test
+    public void concurrentOffersAreAllApplied() throws Exception {
+        System.setProperty(PROP_SHARDS, "4");
+        System.setProperty(PROP_BATCH_SIZE, "8");
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        ExecutorService offering = Executors.newFixedThreadPool(8);
+        try {
+            queue = start(managed(pool));
+            int feeds = 50;
+            int pings = 2000;
+            CountDownLatch done = new CountDownLatch(8);
+            for (int t = 0; t < 8; ++t) {
+                int thread = t;
+                offering.execute(() -> {
+                    for (int i = thread; i < pings; i += 8) {
+                        queue.offer("t1", "feed" + (i % feeds), i);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            long deadline = System.currentTimeMillis() + 10000L;
+            while (queue.getQueueSize() > 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10L);
+            }
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+            assertEquals(0, queue.getQueueSize());
+            for (int f = 0; f < feeds; ++f) {
+                // the last ping offered for the feed is the newest one
+                assertEquals("feed" + f, Long.valueOf(pings - feeds + f), latest.get("t1/feed" + f));
+            }
+        } finally {
+            offering.shutdownNow();
+            pool.shutdownNow();
+        }
+    }
+
+    private FeedPingQueueManager start(ManagedExecutorService executor) {
+        FeedPingQueueManager result = new FeedPingQueueManager();
+        result.executor = executor;
+        result.backfillCacheManager = (BackfillCache) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { BackfillCache.class }, (proxy, method, args) -> {
+                    if (!"updateFeedAvailability".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    String feed = args[0] + "/" + args[1];
+                    synchronized (applied) {
+                        applied.add(feed + "@" + args[2]);
+                    }
+                    latest.merge(feed, (Long) args[2], Math::max);
+                    if (null != onApply) {
+                        onApply.run();
+                    }
+                    return null;
+                });
+        result.init();
+        return result;
+    }
+
+    private ManagedExecutorService manualExecutor() {
+        return (ManagedExecutorService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ManagedExecutorService.class }, (proxy, method, args) -> {
+                    if (!"execute".equals(method.getName())) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    if (rejecting) {
+                        throw new RejectedExecutionException("rejecting");
+                    }
+                    tasks.add((Runnable) args[0]);
+                    return null;
+                });
+    }
+
+    private ManagedExecutorService managed(ExecutorService pool) {
+        return (ManagedExecutorService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { ManagedExecutorService.class }, (proxy, method, args) -> method.invoke(pool, args));
+    }
+
+    private void runTasks() {
+        for (Runnable task; null != (task = tasks.poll());) {
+            task.run();
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.core.Response;
+
+import org.hawkular.rest.exception.mappers.ExceptionMapperUtils;
+import org.hawkular.rest.json.ApiError;
+import org.hawkular.rx.httpclient.UnexpectedStatusException;
+
+import com.netflix.hystrix.exception.HystrixBadRequestException;
+import com.netflix.hystrix.exception.HystrixRuntimeException;
+
+import rx.Observable;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Bridges the observables of the commands to the suspended {@link AsyncResponse}s. Every request is resumed exactly
+ * once: with the first value of the observable, with an error response built by {@link ExceptionMapperUtils}, or with
+ * a 503 once the timeout elapses. The command is unsubscribed if the request times out or the client disconnects.
+ * <p>
+ * The timeout can be configured by the <code>hawkular-services.rest.async-timeout-ms</code> system property, default
+ * 30000. The request counters are available via JMX, see {@link AsyncRequestsMXBean}.
+ *
+ * @author agent
+ */
+public final class AsyncRequests {
+
+    private static final long TIMEOUT_MS = Long.getLong("hawkular-services.rest.async-timeout-ms", 30_000L);
+
+    private static final String MBEAN_NAME = "org.hawkular.services:type=AsyncRequests";
+
+    private static final Stats STATS = new Stats();
+
+    private AsyncRequests() {
+    }
+
+    /**
+     * Registers the request counters as an MXBean, replacing the one left over by a previous deployment.
+     */
+    static void registerMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+            mbs.registerMBean(new StandardMBean(STATS, AsyncRequestsMXBean.class, true), name);
+        } catch (Exception e) {
+            RestApiLogger.LOGGER.warn(e);
+        }
+    }
+
+    static void unregisterMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            RestApiLogger.LOGGER.warn(e);
+        }
+    }
+
+    /**
+     * Resumes the request with the first value of the observable as the entity.
+     */
+    public static <T> void resume(AsyncResponse asyncResponse, Observable<T> observable) {
+        resume(asyncResponse, observable, Function.identity());
+    }
+
+    /**
+     * Resumes the request with the first value of the observable converted by <code>toEntity</code>, which may
+     * return a {@link Response}. A request whose observable completes without a value is resumed with a 204.
+     *
+     * @param asyncResponse the suspended response
+     * @param observable    the observable of the command, subscribed by this method
+     * @param toEntity      converts the value to the response entity
+     */
+    public static <T> void resume(AsyncResponse asyncResponse, Observable<T> observable,
+                                  Function<? super T, ?> toEntity) {
+        AtomicBoolean done = new AtomicBoolean();
+        CompositeSubscription subscription = new CompositeSubscription();
+        STATS.inFlight.incrementAndGet();
+
+        asyncResponse.setTimeoutHandler((response) -> {
+            subscription.unsubscribe();
+            if (claim(done)) {
+                count(response.resume(ExceptionMapperUtils.buildResponse(
+                        new ApiError("The request didn't complete within " + TIMEOUT_MS + " ms"),
+                        new IllegalStateException("Request timed out"), Response.Status.SERVICE_UNAVAILABLE)),
+                        STATS.timedOut);
+            }
+        });
+        asyncResponse.setTimeout(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+        asyncResponse.register((ConnectionCallback) (response) -> {
+            subscription.unsubscribe();
+            if (claim(done)) {
+                STATS.cancelled.incrementAndGet();
+            }
+        });
+
+        subscription.add(observable.subscribe(
+                (value) -> {
+                    if (claim(done)) {
+                        subscription.unsubscribe();
+                        Object entity;
+                        try {
+                            entity = toEntity.apply(value);
+                        } catch (RuntimeException e) {
+                            count(asyncResponse.resume(toErrorResponse(e)), STATS.failed);
+                            return;
+                        }
+                        count(asyncResponse.resume(entity), STATS.completed);
+                    }
+                },
+                (t) -> {
+                    if (claim(done)) {
+                        count(asyncResponse.resume(toErrorResponse(t)), STATS.failed);
+                    }
+                },
+                () -> {
+                    if (claim(done)) {
+                        count(asyncResponse.resume(Response.noContent().build()), STATS.completed);
+                    }
+                }));
+    }
+
+    /**
+     * Maps the failure of a command to the response, the Hystrix wrappers are unwrapped first.
+     */
+    public static Response toErrorResponse(Throwable t) {
+        if (t instanceof HystrixRuntimeException) {
+            HystrixRuntimeException hre = (HystrixRuntimeException) t;
+            switch (hre.getFailureType()) {
+                case TIMEOUT:
+                case SHORTCIRCUIT:
+                case REJECTED_THREAD_EXECUTION:
+                case REJECTED_SEMAPHORE_EXECUTION:
+                case REJECTED_SEMAPHORE_FALLBACK:
+                    return ExceptionMapperUtils.buildResponse(hre, Response.Status.SERVICE_UNAVAILABLE);
+                default:
+                    if (hre.getCause() != null) {
+                        return toErrorResponse(hre.getCause());
+                    }
+            }
+        }
+        if (t instanceof UnexpectedStatusException) {
+            return ExceptionMapperUtils.buildResponse(t, ((UnexpectedStatusException) t).isTransient()
+                    ? Response.Status.SERVICE_UNAVAILABLE : Response.Status.BAD_GATEWAY);
+        }
+        if (t instanceof HystrixBadRequestException) {
+            return ExceptionMapperUtils.buildResponse(t, Response.Status.BAD_REQUEST);
+        }
+        if (t instanceof WebApplicationException) {
+            Response.Status status = Response.Status.fromStatusCode(((WebApplicationException) t).getResponse()
+                    .getStatus());
+            return ExceptionMapperUtils.buildResponse(t, status == null ? Response.Status.INTERNAL_SERVER_ERROR
+                    : status);
+        }
+        if (t instanceof IllegalArgumentException) {
+            return ExceptionMapperUtils.buildResponse(t, Response.Status.BAD_REQUEST);
+        }
+        return ExceptionMapperUtils.buildResponse(t, Response.Status.INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * @return true if the caller is the one to resume the request, only one of the callbacks gets to do it
+     */
+    private static boolean claim(AtomicBoolean done) {
+        if (done.compareAndSet(false, true)) {
+            STATS.inFlight.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Counts the outcome once the request is resumed. A request the container refused to resume, because the client
+     * has gone away in the meantime, counts as cancelled.
+     */
+    private static void count(boolean resumed, AtomicLong outcome) {
+        (resumed ? outcome : STATS.cancelled).incrementAndGet();
+    }
+
+    private static final class Stats implements AsyncRequestsMXBean {
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicLong completed = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+        private final AtomicLong timedOut = new AtomicLong();
+        private final AtomicLong cancelled = new AtomicLong();
+
+        @Override
+        public long getTimeoutMs() {
+            return TIMEOUT_MS;
+        }
+
+        @Override
+        public int getInFlightCount() {
+            return inFlight.get();
+        }
+
+        @Override
+        public long getCompletedCount() {
+            return completed.get();
+        }
+
+        @Override
+        public long getFailedCount() {
+            return failed.get();
+        }
+
+        @Override
+        public long getTimedOutCount() {
+            return timedOut.get();
+        }
+
+        @Override
+        public long getCancelledCount() {
+            return cancelled.get();
+        }
+    }
+}
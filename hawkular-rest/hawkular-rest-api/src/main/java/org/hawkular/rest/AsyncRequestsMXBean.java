@@ -0,0 +1,47 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+/**
+ * Management view of the asynchronous requests handled through {@link AsyncRequests}, registered as
+ * <code>org.hawkular.services:type=AsyncRequests</code>.
+ *
+ * @author agent
+ */
+public interface AsyncRequestsMXBean {
+
+    long getTimeoutMs();
+
+    /**
+     * @return the number of requests suspended and not resumed yet
+     */
+    int getInFlightCount();
+
+    long getCompletedCount();
+
+    /**
+     * @return the number of requests resumed with an error response
+     */
+    long getFailedCount();
+
+    long getTimedOutCount();
+
+    /**
+     * @return the number of requests whose client disconnected before the response was ready
+     */
+    long getCancelledCount();
+}
@@ -19,8 +19,11 @@ package org.hawkular.rest;
 import javax.ws.rs.ApplicationPath;
 import javax.ws.rs.core.Application;
 
+import org.hawkular.rx.commands.hawkular.GetUrlCollapser;
+
 /**
- * JAX-RS startup "marker" class
+ * JAX-RS startup "marker" class. The MXBeans registered here are unregistered by {@link RestApiLifecycle} when the
+ * application is undeployed.
  *
  * @author Heiko W. Rupp
  */
@@ -29,6 +32,8 @@ public class HawkularRestApi extends Application {
 
     public HawkularRestApi() {
         RestApiLogger.LOGGER.apiStarting();
-//        HystrixPlugins.registerMetricsPublisher(HystrixMetricsPublisher impl).
+        HystrixJmxPublisher.register();
+        AsyncRequests.registerMBean();
+        GetUrlCollapser.registerMBean();
     }
 }
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+/**
+ * Management view of one Hystrix command, registered as
+ * <code>org.hawkular.services:type=HystrixCommand,name=&lt;command key&gt;</code>. The counts are the rolling ones,
+ * i.e. over the last <code>metrics.rollingStats.timeInMilliseconds</code> (10s by default).
+ *
+ * @author agent
+ */
+public interface HystrixCommandStatsMXBean {
+
+    String getGroup();
+
+    String getIsolation();
+
+    long getRequestCount();
+
+    long getErrorCount();
+
+    int getErrorPercentage();
+
+    long getTimeoutCount();
+
+    /**
+     * @return the executions rejected by a full thread pool or semaphore
+     */
+    long getRejectedCount();
+
+    long getResponseFromCacheCount();
+
+    int getConcurrentExecutionCount();
+
+    int getLatencyMeanMs();
+
+    int getLatency50thMs();
+
+    int getLatency90thMs();
+
+    int getLatency99thMs();
+
+    boolean isCircuitBreakerOpen();
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import com.netflix.hystrix.HystrixCircuitBreaker;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandMetrics;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixThreadPoolKey;
+import com.netflix.hystrix.HystrixThreadPoolMetrics;
+import com.netflix.hystrix.HystrixThreadPoolProperties;
+import com.netflix.hystrix.strategy.HystrixPlugins;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisher;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherCommand;
+import com.netflix.hystrix.strategy.metrics.HystrixMetricsPublisherThreadPool;
+import com.netflix.hystrix.util.HystrixRollingNumberEvent;
+
+/**
+ * Publishes the metrics of each Hystrix command and thread pool as MXBeans, where the hawkular-status endpoint (and
+ * any JMX client) picks them up. The same numbers are streamed by the <code>/hystrix.stream</code> servlet, but that
+ * needs a dashboard to be attached.
+ *
+ * @author agent
+ */
+public class HystrixJmxPublisher extends HystrixMetricsPublisher {
+
+    private static final String DOMAIN = "org.hawkular.services";
+
+    /**
+     * Has to be called before the first command is executed, Hystrix only allows one publisher.
+     */
+    public static void register() {
+        try {
+            HystrixPlugins.getInstance().registerMetricsPublisher(new HystrixJmxPublisher());
+        } catch (IllegalStateException e) {
+            // another publisher is registered, or a command has already run and Hystrix picked the default one
+            RestApiLogger.LOGGER.hystrixPublisherNotRegistered(e.getMessage());
+        }
+    }
+
+    @Override
+    public HystrixMetricsPublisherCommand getMetricsPublisherForCommand(HystrixCommandKey commandKey,
+                                                                       HystrixCommandGroupKey commandGroupKey,
+                                                                       HystrixCommandMetrics metrics,
+                                                                       HystrixCircuitBreaker circuitBreaker,
+                                                                       HystrixCommandProperties properties) {
+        return () -> registerMBean("HystrixCommand", commandKey.name(),
+                new CommandStats(commandGroupKey, metrics, circuitBreaker, properties),
+                HystrixCommandStatsMXBean.class);
+    }
+
+    @Override
+    public HystrixMetricsPublisherThreadPool getMetricsPublisherForThreadPool(HystrixThreadPoolKey threadPoolKey,
+                                                                            HystrixThreadPoolMetrics metrics,
+                                                                            HystrixThreadPoolProperties properties) {
+        return () -> registerMBean("HystrixThreadPool", threadPoolKey.name(), new ThreadPoolStats(metrics, properties),
+                HystrixThreadPoolStatsMXBean.class);
+    }
+
+    private static <T> void registerMBean(String type, String name, T mbean, Class<T> mbeanInterface) {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName objectName = new ObjectName(DOMAIN + ":type=" + type + ",name=" + ObjectName.quote(name));
+            if (mbs.isRegistered(objectName)) {
+                // left over by a previous deployment, its metrics are dead
+                mbs.unregisterMBean(objectName);
+            }
+            mbs.registerMBean(new StandardMBean(mbean, mbeanInterface, true), objectName);
+        } catch (Exception e) {
+            RestApiLogger.LOGGER.warn(e);
+        }
+    }
+
+    private static class CommandStats implements HystrixCommandStatsMXBean {
+        private final HystrixCommandGroupKey group;
+        private final HystrixCommandMetrics metrics;
+        private final HystrixCircuitBreaker circuitBreaker;
+        private final HystrixCommandProperties properties;
+
+        private CommandStats(HystrixCommandGroupKey group, HystrixCommandMetrics metrics,
+                             HystrixCircuitBreaker circuitBreaker, HystrixCommandProperties properties) {
+            this.group = group;
+            this.metrics = metrics;
+            this.circuitBreaker = circuitBreaker;
+            this.properties = properties;
+        }
+
+        @Override
+        public String getGroup() {
+            return group.name();
+        }
+
+        @Override
+        public String getIsolation() {
+            return properties.executionIsolationStrategy().get().name();
+        }
+
+        @Override
+        public long getRequestCount() {
+            return metrics.getHealthCounts().getTotalRequests();
+        }
+
+        @Override
+        public long getErrorCount() {
+            return metrics.getHealthCounts().getErrorCount();
+        }
+
+        @Override
+        public int getErrorPercentage() {
+            return metrics.getHealthCounts().getErrorPercentage();
+        }
+
+        @Override
+        public long getTimeoutCount() {
+            return metrics.getRollingCount(HystrixRollingNumberEvent.TIMEOUT);
+        }
+
+        @Override
+        public long getRejectedCount() {
+            return metrics.getRollingCount(HystrixRollingNumberEvent.THREAD_POOL_REJECTED)
+                    + metrics.getRollingCount(HystrixRollingNumberEvent.SEMAPHORE_REJECTED);
+        }
+
+        @Override
+        public long getResponseFromCacheCount() {
+            return metrics.getRollingCount(HystrixRollingNumberEvent.RESPONSE_FROM_CACHE);
+        }
+
+        @Override
+        public int getConcurrentExecutionCount() {
+            return metrics.getCurrentConcurrentExecutionCount();
+        }
+
+        @Override
+        public int getLatencyMeanMs() {
+            return metrics.getExecutionTimeMean();
+        }
+
+        @Override
+        public int getLatency50thMs() {
+            return metrics.getExecutionTimePercentile(50);
+        }
+
+        @Override
+        public int getLatency90thMs() {
+            return metrics.getExecutionTimePercentile(90);
+        }
+
+        @Override
+        public int getLatency99thMs() {
+            return metrics.getExecutionTimePercentile(99);
+        }
+
+        @Override
+        public boolean isCircuitBreakerOpen() {
+            return circuitBreaker != null && circuitBreaker.isOpen();
+        }
+    }
+
+    private static class ThreadPoolStats implements HystrixThreadPoolStatsMXBean {
+        private final HystrixThreadPoolMetrics metrics;
+        private final HystrixThreadPoolProperties properties;
+
+        private ThreadPoolStats(HystrixThreadPoolMetrics metrics, HystrixThreadPoolProperties properties) {
+            this.metrics = metrics;
+            this.properties = properties;
+        }
+
+        @Override
+        public int getCoreSize() {
+            return properties.coreSize().get();
+        }
+
+        @Override
+        public int getMaxQueueSize() {
+            return properties.maxQueueSize().get();
+        }
+
+        @Override
+        public int getActiveCount() {
+            return metrics.getCurrentActiveCount().intValue();
+        }
+
+        @Override
+        public int getQueueSize() {
+            return metrics.getCurrentQueueSize().intValue();
+        }
+
+        @Override
+        public int getRollingMaxActiveCount() {
+            return (int) metrics.getRollingMaxActiveThreads();
+        }
+
+        @Override
+        public long getRollingExecutedCount() {
+            return metrics.getRollingCountThreadsExecuted();
+        }
+
+        @Override
+        public double getSaturation() {
+            int coreSize = getCoreSize();
+            return coreSize == 0 ? 0 : (double) getActiveCount() / coreSize;
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
  * and other contributors as indicated by the @author tags.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -14,17 +14,30 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.hawkular.rx.cdi;
-
-import javax.enterprise.util.AnnotationLiteral;
+package org.hawkular.rest;
 
 /**
- * @author Jirka Kremser
+ * Management view of one Hystrix thread pool, registered as
+ * <code>org.hawkular.services:type=HystrixThreadPool,name=&lt;thread pool key&gt;</code>.
+ *
+ * @author agent
  */
-public class UpdateCommandLiteral extends AnnotationLiteral<UpdateCommand> implements UpdateCommand {
-    private static final UpdateCommandLiteral INSTANCE = new UpdateCommandLiteral();
+public interface HystrixThreadPoolStatsMXBean {
+
+    int getCoreSize();
+
+    int getMaxQueueSize();
+
+    int getActiveCount();
+
+    int getQueueSize();
+
+    int getRollingMaxActiveCount();
+
+    long getRollingExecutedCount();
 
-    public static UpdateCommandLiteral get() {
-        return INSTANCE;
-    }
+    /**
+     * @return the active threads divided by the core size, 1 means the next commands are queued or rejected
+     */
+    double getSaturation();
 }
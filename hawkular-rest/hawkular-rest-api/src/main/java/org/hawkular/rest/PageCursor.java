@@ -0,0 +1,225 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Function;
+
+/**
+ * An opaque continuation token for keyset ("seek") paging. Instead of a page number the cursor carries the sort key of
+ * the last element returned, so the next page is "the next <i>page size</i> elements after that key" and no offset
+ * has to be skipped or counted to produce it.
+ * <p>
+ * The token also remembers the sort fields and directions it was created for, so that a client only ever needs to
+ * follow the <i>next</i> link. It is encoded as URL-safe base64 and must be treated as opaque by the clients.
+ * <p>
+ * A key is the list of the values of the sort fields of an element, a missing value is null and sorts first. A key may
+ * carry more values than there are sort fields, the extra ones are compared in ascending order, to make the keys of
+ * the elements unique: the elements with equal sort values would otherwise be skipped or repeated between pages.
+ *
+ * @author agent
+ */
+public final class PageCursor {
+
+    private static final int VERSION = 1;
+    private static final int NULL_LENGTH = -1;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final int pageSize;
+    private final List<String> sort;
+    private final List<String> order;
+    private final List<String> lastKey;
+
+    /**
+     * @param pageSize the number of elements on a page, must be positive
+     * @param sort     the names of the fields the collection is sorted by
+     * @param order    the sort directions ("asc" or "desc") of the fields, may be shorter than <code>sort</code>
+     * @param lastKey  the key of the last element seen, empty for the first page; it may contain nulls
+     */
+    public PageCursor(int pageSize, List<String> sort, List<String> order, List<String> lastKey) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Cursor paging needs a positive page size, got " + pageSize);
+        }
+        this.pageSize = pageSize;
+        this.sort = sort == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(sort));
+        this.order = order == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(order));
+        this.lastKey = lastKey == null ? Collections.emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(lastKey));
+    }
+
+    /**
+     * @param token the token as produced by {@link #encode()}
+     * @return the decoded cursor
+     * @throws IllegalArgumentException if the token is malformed
+     */
+    public static PageCursor decode(String token) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(DECODER.decode(token)))) {
+            int version = in.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported cursor version " + version);
+            }
+            int pageSize = in.readInt();
+            List<String> sort = readList(in);
+            List<String> order = readList(in);
+            List<String> lastKey = readList(in);
+            if (in.available() > 0) {
+                throw new IOException("Trailing bytes");
+            }
+            return new PageCursor(pageSize, sort, order, lastKey);
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor '" + token + "'", e);
+        }
+    }
+
+    public String encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeInt(pageSize);
+            writeList(out, sort);
+            writeList(out, order);
+            writeList(out, lastKey);
+        } catch (IOException e) {
+            // writing to memory, can't happen
+            throw new IllegalStateException(e);
+        }
+        return ENCODER.encodeToString(bytes.toByteArray());
+    }
+
+    /**
+     * @param lastKey the key of the last element of the current page
+     * @return the cursor for the page following that element, with the same page size and sorting
+     */
+    public PageCursor next(List<String> lastKey) {
+        return new PageCursor(pageSize, sort, order, lastKey);
+    }
+
+    /**
+     * @return true if this cursor points at the beginning of the collection
+     */
+    public boolean isFirst() {
+        return lastKey.isEmpty();
+    }
+
+    /**
+     * @return the order of the keys: by the sort fields in their directions, then by the extra values ascending
+     */
+    public Comparator<List<String>> keyOrder() {
+        return (a, b) -> {
+            for (int i = 0; i < Math.min(a.size(), b.size()); i++) {
+                int result = Comparator.<String>nullsFirst(Comparator.naturalOrder()).compare(a.get(i), b.get(i));
+                if (result != 0) {
+                    return i < order.size() && "desc".equalsIgnoreCase(order.get(i)) ? -result : result;
+                }
+            }
+            return Integer.compare(a.size(), b.size());
+        };
+    }
+
+    /**
+     * Selects the elements of this cursor's page out of an unsorted collection, in one pass and keeping at most
+     * page size + 1 elements. The extra element only tells that there is a next page.
+     *
+     * @param elements the whole collection, in any order
+     * @param keyOf    the key of an element, see {@link #keyOrder()}
+     * @return the elements following {@link #getLastKey()}, sorted, at most page size + 1 of them
+     */
+    public <T> List<T> select(Iterable<T> elements, Function<? super T, List<String>> keyOf) {
+        Comparator<List<String>> keyOrder = keyOrder();
+        Comparator<T> elementOrder = (a, b) -> keyOrder.compare(keyOf.apply(a), keyOf.apply(b));
+        // the greatest of the selected elements is at the head, so it is the one replaced
+        PriorityQueue<T> selected = new PriorityQueue<>(Math.min(pageSize + 1, 1024), elementOrder.reversed());
+        for (T element : elements) {
+            if (!isFirst() && keyOrder.compare(keyOf.apply(element), lastKey) <= 0) {
+                continue;
+            }
+            selected.add(element);
+            if (selected.size() > pageSize + 1) {
+                selected.poll();
+            }
+        }
+        List<T> result = new ArrayList<>(selected);
+        result.sort(elementOrder);
+        return result;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public List<String> getSort() {
+        return sort;
+    }
+
+    public List<String> getOrder() {
+        return order;
+    }
+
+    public List<String> getLastKey() {
+        return lastKey;
+    }
+
+    // DataOutput.writeUTF is limited to 64KB and has no null, so the values are written as length prefixed UTF-8
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        out.writeShort(values.size());
+        for (String value : values) {
+            if (value == null) {
+                out.writeInt(NULL_LENGTH);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+        }
+    }
+
+    private static List<String> readList(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        List<String> values = new ArrayList<>(Math.min(size, 16));
+        for (int i = 0; i < size; i++) {
+            int length = in.readInt();
+            if (length == NULL_LENGTH) {
+                values.add(null);
+            } else if (length < 0 || length > in.available()) {
+                throw new IOException("Invalid value length " + length);
+            } else {
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                values.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return "PageCursor[pageSize=" + pageSize + ", sort=" + sort + ", order=" + order + ", lastKey=" + lastKey
+                + "]";
+    }
+}
@@ -32,6 +32,13 @@ import org.hawkular.inventory.api.paging.Pager;
  */
 public class RequestUtil {
 
+    /**
+     * Page size of cursor paged requests that don't specify <code>per_page</code>. Configured by the
+     * <code>hawkular-services.rest.cursor-page-size</code> system property, default 100.
+     */
+    private static final int DEFAULT_CURSOR_PAGE_SIZE = Integer.getInteger("hawkular-services.rest.cursor-page-size",
+            100);
+
     private RequestUtil() {
     }
 
@@ -64,4 +71,55 @@ public class RequestUtil {
 
         return new Pager(page, perPage, ordering);
     }
+
+    /**
+     * Extracts the keyset paging cursor of the request. The <code>cursor</code> query parameter either carries a token
+     * from a previous <i>next</i> link or is empty to request the first page, in which case the cursor is built from
+     * the <code>sort</code>, <code>order</code> and <code>per_page</code> parameters. A <code>per_page</code> parameter
+     * always overrides the page size stored in the token.
+     *
+     * @param uri the uri info of the request
+     * @return the cursor or null if the request carries no <code>cursor</code> parameter
+     * @throws IllegalArgumentException if the cursor token or the page size is malformed
+     */
+    public static PageCursor extractCursor(UriInfo uri) {
+        MultivaluedMap<String, String> params = uri.getQueryParameters();
+
+        String token = params.getFirst("cursor");
+        if (token == null) {
+            return null;
+        }
+
+        String perPageS = params.getFirst("per_page");
+        if (token.isEmpty()) {
+            int perPage = perPageS == null ? DEFAULT_CURSOR_PAGE_SIZE : Integer.parseInt(perPageS);
+            return new PageCursor(perPage, params.get("sort"), params.get("order"), null);
+        }
+
+        PageCursor cursor = PageCursor.decode(token);
+        if (perPageS != null) {
+            cursor = new PageCursor(Integer.parseInt(perPageS), cursor.getSort(), cursor.getOrder(),
+                    cursor.getLastKey());
+        }
+        return cursor;
+    }
+
+    /**
+     * The <i>X-Total-Count</i> header requires the backend to count the whole collection, so it is only sent when the
+     * client asks for it with the <code>total_count=true</code> query parameter.
+     *
+     * @param uri the uri info of the request
+     * @return true if the response should carry the total size of the collection
+     */
+    public static boolean isTotalCountRequested(UriInfo uri) {
+        return Boolean.parseBoolean(uri.getQueryParameters().getFirst("total_count"));
+    }
+
+    /**
+     * @param uri the uri info of the request
+     * @return true if the client asked for an indented response with the <code>pretty=true</code> query parameter
+     */
+    public static boolean isPrettyRequested(UriInfo uri) {
+        return Boolean.parseBoolean(uri.getQueryParameters().getFirst("pretty"));
+    }
 }
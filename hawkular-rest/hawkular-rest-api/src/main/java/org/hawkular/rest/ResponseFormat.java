@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import javax.ws.rs.NotAcceptableException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.Variant;
+
+import org.hawkular.rx.cdi.JacksonConfig;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+/**
+ * The representations a collection can be streamed in, chosen by the <i>Accept</i> header of the request:
+ * <ul>
+ *     <li>{@link #JSON} - a JSON array (<code>application/json</code>), also used for wildcards and
+ *     <code>application/octet-stream</code></li>
+ *     <li>{@link #NDJSON} - one JSON document per line (<code>application/x-ndjson</code>), so that the clients can
+ *     process the records as they arrive</li>
+ *     <li>{@link #SMILE} - an array in the binary Smile encoding of JSON
+ *     (<code>application/x-jackson-smile</code>)</li>
+ * </ul>
+ * The output is always compact, pretty printing is meant for humans and costs size and CPU on every element.
+ *
+ * @author agent
+ */
+public enum ResponseFormat {
+
+    JSON(MediaType.APPLICATION_JSON_TYPE),
+    NDJSON(new MediaType("application", "x-ndjson")),
+    SMILE(new MediaType("application", "x-jackson-smile"));
+
+    private static final ObjectMapper SMILE_MAPPER = new ObjectMapper(new SmileFactory());
+
+    static {
+        JacksonConfig.initializeCompactObjectMapper(SMILE_MAPPER);
+    }
+
+    private final MediaType mediaType;
+
+    // the writers of the mapper used last, in practice it is always the same shared mapper
+    private volatile Writers writers;
+
+    ResponseFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * @param headers the headers of the request
+     * @return the format most preferred by the client, {@link #JSON} if the client accepts anything
+     * @throws NotAcceptableException if the client accepts none of the formats
+     */
+    public static ResponseFormat negotiate(HttpHeaders headers) {
+        List<MediaType> acceptable = headers.getAcceptableMediaTypes();
+        if (acceptable == null || acceptable.isEmpty()) {
+            return JSON;
+        }
+        // already sorted by quality and specificity, application/* picks JSON as it is the first format
+        for (MediaType type : acceptable) {
+            if (MediaType.APPLICATION_OCTET_STREAM_TYPE.isCompatible(type)) {
+                return JSON;
+            }
+            for (ResponseFormat format : values()) {
+                if (format.mediaType.isCompatible(type)) {
+                    return format;
+                }
+            }
+        }
+        throw new NotAcceptableException(Variant.mediaTypes(NDJSON.mediaType, SMILE.mediaType, JSON.mediaType)
+                .build());
+    }
+
+    /**
+     * Returns the writer for this format. The writers are immutable and built once per mapper, the mapper itself is
+     * never reconfigured, so it can be shared by all the threads.
+     *
+     * @param mapper the mapper configured for the JSON representation
+     * @param pretty true to indent the output, only applies to {@link #JSON}
+     * @return a writer for this format, it doesn't flush after each value
+     */
+    ObjectWriter writer(ObjectMapper mapper, boolean pretty) {
+        ObjectMapper source = this == SMILE ? SMILE_MAPPER : mapper;
+        Writers current = writers;
+        if (current == null || current.source != source) {
+            current = new Writers(source);
+            writers = current;
+        }
+        return pretty && this == JSON ? current.pretty : current.compact;
+    }
+
+    /**
+     * Writes the elements to the output in this format, flushing every <code>flushInterval</code> elements (0 to only
+     * flush at the end). The output stream itself is not closed.
+     */
+    <T> void write(Iterable<T> elements, ObjectWriter writer, OutputStream output, int flushInterval)
+            throws IOException {
+        try (JsonGenerator generator = writer.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (writer.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+                generator.useDefaultPrettyPrinter();
+            }
+            if (this == NDJSON) {
+                generator.setRootValueSeparator(null);
+                int count = 0;
+                for (T element : elements) {
+                    writer.writeValue(generator, element);
+                    generator.writeRaw('\n');
+                    if (flushInterval > 0 && ++count % flushInterval == 0) {
+                        generator.flush();
+                    }
+                }
+            } else {
+                try (SequenceWriter sequenceWriter = writer.writeValuesAsArray(generator)) {
+                    int count = 0;
+                    for (T element : elements) {
+                        sequenceWriter.write(element);
+                        if (flushInterval > 0 && ++count % flushInterval == 0) {
+                            sequenceWriter.flush();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the entity that writes the elements in this format while they are iterated, on the container's thread
+     * that writes the response. Elements that are {@link AutoCloseable} are closed once written, or once the writing
+     * fails.
+     */
+    public <T> StreamingOutput stream(Iterable<T> elements, ObjectMapper mapper, boolean pretty, int flushInterval) {
+        ObjectWriter writer = writer(mapper, pretty);
+        return (output) -> {
+            try {
+                write(elements, writer, output, flushInterval);
+            } finally {
+                if (elements instanceof AutoCloseable) {
+                    try {
+                        ((AutoCloseable) elements).close();
+                    } catch (Exception e) {
+                        RestApiLogger.LOGGER.warn(e);
+                    }
+                }
+            }
+        };
+    }
+
+    private static final class Writers {
+        private final ObjectMapper source;
+        private final ObjectWriter compact;
+        private final ObjectWriter pretty;
+
+        private Writers(ObjectMapper source) {
+            this.source = source;
+            this.compact = source.writer().without(SerializationFeature.INDENT_OUTPUT)
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.pretty = compact.with(SerializationFeature.INDENT_OUTPUT);
+        }
+    }
+}
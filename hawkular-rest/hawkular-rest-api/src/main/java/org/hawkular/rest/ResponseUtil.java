@@ -19,15 +19,13 @@ package org.hawkular.rest;
 import static javax.ws.rs.core.Response.Status.CREATED;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Spliterator;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
 import java.util.stream.StreamSupport;
 
-import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 import javax.ws.rs.core.UriInfo;
@@ -36,16 +34,22 @@ import org.hawkular.inventory.api.paging.Page;
 import org.hawkular.inventory.api.paging.PageContext;
 import org.hawkular.rest.json.Link;
 
-import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SequenceWriter;
 
 /**
  * @author Lukas Krejci
  * @author Heiko W. Rupp
  * @since 0.0.1
  */
-final class ResponseUtil {
+public final class ResponseUtil {
+
+    private static final String PROP_PAGE_FLUSH_INTERVAL = "hawkular-services.rest.page-flush-interval";
+
+    /**
+     * Number of page elements written between flushes of the response, 0 to flush only once the page is written.
+     * Configured by the <code>hawkular-services.rest.page-flush-interval</code> system property, default 100.
+     */
+    private static final int PAGE_FLUSH_INTERVAL = Integer.getInteger(PROP_PAGE_FLUSH_INTERVAL, 100);
 
     /**
      * This method exists solely to concentrate usage of {@link javax.ws.rs.core.Response#created(java.net.URI)} into
@@ -75,19 +79,42 @@ final class ResponseUtil {
                         (id) -> info.getRequestUriBuilder().segment(id).build()));
     }
 
+    /**
+     * Streams the page as a compact JSON array.
+     */
     public static <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response, UriInfo uriInfo,
                                                              ObjectMapper mapper, Page<T> page) {
-        InputStream data = null;
+        return pagedResponse(response, uriInfo, ResponseFormat.JSON, mapper, page);
+    }
+
+    /**
+     * Streams the page in the given format, see {@link ResponseFormat#negotiate(javax.ws.rs.core.HttpHeaders)}. The
+     * elements are written straight to the container's output stream by a {@link javax.ws.rs.core.StreamingOutput},
+     * on the thread writing the response, and flushed every {@link #PAGE_FLUSH_INTERVAL} elements. A failure to write
+     * is propagated to the container.
+     */
+    public static <T> Response.ResponseBuilder pagedResponse(Response.ResponseBuilder response, UriInfo uriInfo,
+                                                             ResponseFormat format, ObjectMapper mapper,
+                                                             Page<T> page) {
+        boolean pretty = RequestUtil.isPrettyRequested(uriInfo);
+        response.type(format.getMediaType());
+        if (!page.getPageContext().isLimited() && !RequestUtil.isTotalCountRequested(uriInfo)) {
+            // no header depends on the total size, the page is streamed while it is read
+            createPagingHeader(response, uriInfo, page);
+            response.entity(format.stream(page, mapper, pretty, PAGE_FLUSH_INTERVAL));
+            return response;
+        }
+
+        // the headers are committed before the body is written, but the total size of the page is only reliable once
+        // the page iterator is depleted, so the page is read before the headers are built
+        List<T> elements;
         try {
-            //extract the data out of the page
-            data = pageToStream(page, mapper, () -> {
-                // the page iterator should be depleted by this time so the total size should be correctly set
-                response.type(MediaType.APPLICATION_OCTET_STREAM_TYPE);
-                createPagingHeader(response, uriInfo, page);
-            });
+            elements = drain(page);
         } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the page.", e);
         }
-        response.entity(data);
+        createPagingHeader(response, uriInfo, page);
+        response.entity(format.stream(elements, mapper, pretty, PAGE_FLUSH_INTERVAL));
         return response;
     }
 
@@ -98,39 +125,74 @@ final class ResponseUtil {
         return response;
     }
 
-    private static <T> InputStream pageToStream(Page<T> page, ObjectMapper mapper, Runnable callback) throws
-            IOException {
-        final PipedOutputStream outs = new PipedOutputStream();
-        final PipedInputStream ins = new PipedInputStream() {
-            @Override public void close() throws IOException {
-                outs.close();
-                super.close();
-            }
-        };
-        outs.connect(ins);
-        mapper.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
-
-        PageToStreamThreadPool.getInstance().submit(() -> {
-            try (Page<T> closeablePage = page;
-                 PipedOutputStream out = outs;
-                 SequenceWriter sequenceWriter = mapper.writer().writeValuesAsArray(out)) {
-                for (T element : closeablePage) {
-                    sequenceWriter.write(element);
-                    sequenceWriter.flush();
-                }
-            } catch (IOException e) {
-                throw new IllegalStateException("Unable to convert page to input stream.", e);
-            } finally {
-                callback.run();
+    /**
+     * Builds a keyset paged response. The <code>elements</code> are expected to be the elements following
+     * {@link PageCursor#getLastKey()} in the cursor's ordering, limited to {@link PageCursor#getPageSize()} + 1
+     * elements, see {@link PageCursor#select(Iterable, Function)}. The extra element only tells whether there is a next
+     * page, so no count or offset skipping is needed to produce the <i>next</i> link.
+     *
+     * @param response  the builder to attach the headers and entity to
+     * @param uriInfo   the uri info of the request
+     * @param format    the format to stream the page in
+     * @param mapper    the mapper to serialize the elements with
+     * @param cursor    the cursor of the request, see {@link RequestUtil#extractCursor(UriInfo)}
+     * @param elements  the elements following the cursor
+     * @param keyOf     the key of an element, see {@link PageCursor#keyOrder()}
+     * @param totalSize supplies the size of the whole collection, only called if the client asked for it
+     */
+    public static <T> Response.ResponseBuilder cursorPagedResponse(Response.ResponseBuilder response,
+                                                                   UriInfo uriInfo, ResponseFormat format,
+                                                                   ObjectMapper mapper, PageCursor cursor,
+                                                                   List<T> elements,
+                                                                   Function<? super T, List<String>> keyOf,
+                                                                   LongSupplier totalSize) {
+        boolean hasNext = elements.size() > cursor.getPageSize();
+        List<T> page = hasNext ? elements.subList(0, cursor.getPageSize()) : elements;
+
+        List<Link> links = new ArrayList<>();
+        if (!cursor.isFirst()) {
+            links.add(new Link("first", uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", "")
+                    .replaceQueryParam("sort", cursor.getSort().toArray())
+                    .replaceQueryParam("order", cursor.getOrder().toArray())
+                    .replaceQueryParam("per_page", cursor.getPageSize()).build().toString()));
+        }
+        if (hasNext) {
+            PageCursor next = cursor.next(keyOf.apply(page.get(page.size() - 1)));
+            // the token carries the sorting, so the parameters are dropped to keep the link short
+            links.add(new Link("next", uriInfo.getRequestUriBuilder().replaceQueryParam("cursor", next.encode())
+                    .replaceQueryParam("sort").replaceQueryParam("order").replaceQueryParam("per_page")
+                    .build().toString()));
+        }
+
+        StringBuilder linkHeader = new StringBuilder(new Link("current", uriInfo.getRequestUriBuilder().build()
+                .toString()).rfc5988String());
+        links.forEach((l) -> linkHeader.append(", ").append(l.rfc5988String()));
+        response.header("Link", linkHeader.toString());
+
+        if (RequestUtil.isTotalCountRequested(uriInfo)) {
+            response.header("X-Total-Count", totalSize.getAsLong());
+        }
+
+        response.type(format.getMediaType());
+        response.entity(format.stream(page, mapper, RequestUtil.isPrettyRequested(uriInfo), PAGE_FLUSH_INTERVAL));
+        return response;
+    }
+
+    private static <T> List<T> drain(Page<T> page) throws IOException {
+        List<T> elements = new ArrayList<>();
+        try (Page<T> closeablePage = page) {
+            for (T element : closeablePage) {
+                elements.add(element);
             }
-        });
-        return ins;
+        }
+        return elements;
     }
 
     /**
      * Create the paging headers for collections and attach them to the passed builder. Those are represented as
      * <i>Link:</i> http headers that carry the URL for the pages and the respective relation.
-     * <br/>In addition a <i>X-Total-Count</i> header is created that contains the whole collection size.
+     * <br/>In addition a <i>X-Total-Count</i> header that contains the whole collection size is created, if the
+     * client asked for it (see {@link RequestUtil#isTotalCountRequested(UriInfo)}).
      *
      * @param builder    The ResponseBuilder that receives the headers
      * @param uriInfo    The uriInfo of the incoming request to build the urls
@@ -186,6 +248,8 @@ final class ResponseUtil {
         builder.header("Link", linkHeader.toString());
 
         // Create a total size header
-        builder.header("X-Total-Count", resultList.getTotalSize());
+        if (RequestUtil.isTotalCountRequested(uriInfo)) {
+            builder.header("X-Total-Count", resultList.getTotalSize());
+        }
     }
 }
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.Dependent;
+import javax.enterprise.context.Destroyed;
+import javax.enterprise.event.Observes;
+
+import org.hawkular.rx.commands.hawkular.GetUrlCollapser;
+
+/**
+ * Unregisters the MXBeans of the REST API once the application is undeployed, so that the beans of an undeployed
+ * application don't keep its classes alive.
+ *
+ * @author agent
+ */
+@Dependent
+public class RestApiLifecycle {
+
+    public void undeployed(@Observes @Destroyed(ApplicationScoped.class) Object event) {
+        AsyncRequests.unregisterMBean();
+        GetUrlCollapser.unregisterMBean();
+    }
+}
@@ -57,4 +57,9 @@ public interface RestApiLogger extends BasicLogger {
     @LogMessage(level = Logger.Level.DEBUG)
     @Message(id = 5504, value = "Accepting:\nHTTP %s -> %s\n\nheaders:\n%s\npayload:\n%s\njavaMethod: %s\n")
     void restCall(String method, String url, String headers, String jsonPayload, String javaMethod);
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5505, value = "Hystrix metrics publisher could not be registered, the rx command metrics won't be " +
+            "available in JMX and on the status endpoint. Cause: [%s]")
+    void hystrixPublisherNotRegistered(String message);
 }
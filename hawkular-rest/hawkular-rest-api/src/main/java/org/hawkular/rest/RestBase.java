@@ -19,13 +19,11 @@ package org.hawkular.rest;
 import javax.inject.Inject;
 
 import org.hawkular.inventory.rest.security.TenantId;
-import org.jboss.resteasy.annotations.GZIP;
 
 /**
  * @author Jirka Kremser
  * @since 0.0.1
  */
-@GZIP
 public class RestBase {
 
     @Inject @TenantId
@@ -35,11 +35,17 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.Response;
 
+import org.hawkular.rest.features.ConditionalGet;
+import org.hawkular.rest.json.CachedRepresentation;
+import org.hawkular.rx.cdi.JacksonConfig;
 import org.jboss.resteasy.core.Dispatcher;
 import org.jboss.resteasy.core.ResourceInvoker;
 import org.jboss.resteasy.core.ResourceMethodInvoker;
 import org.jboss.resteasy.core.ResourceMethodRegistry;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 /**
  * @author Lukas Krejci
  * @since 1.0
@@ -52,18 +58,40 @@ public class RestPing {
     @Context
     private Dispatcher dispatcher;
 
-    private InventoryJaxRsInfo inventoryJaxRsInfo;
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    static {
+        JacksonConfig.initializeCompactObjectMapper(MAPPER);
+    }
+
+    // RestPing is created per request, but the endpoints don't change after the deployment, so they are collected,
+    // serialized, tagged and compressed only once; a concurrent first request at worst does the same work again
+    private static volatile InventoryJaxRsInfo inventoryJaxRsInfo;
+    private static volatile CachedRepresentation inventoryJaxRsInfoRepresentation;
 
     @PostConstruct
     private void init() {
-        inventoryJaxRsInfo = getEndpoints((ResourceMethodRegistry) dispatcher.getRegistry());
-        Collections.sort(inventoryJaxRsInfo.getEndpoints());
+        if (inventoryJaxRsInfo != null) {
+            return;
+        }
+        InventoryJaxRsInfo info = getEndpoints((ResourceMethodRegistry) dispatcher.getRegistry());
+        Collections.sort(info.getEndpoints());
+        try {
+            inventoryJaxRsInfoRepresentation = CachedRepresentation.of(info,
+                    MAPPER.writer());
+        } catch (JsonProcessingException e) {
+            RestApiLogger.LOGGER.warn(e);
+        }
+        inventoryJaxRsInfo = info;
     }
 
     @GET
     @Path("/")
+    @ConditionalGet
     public Response ping(@Context Dispatcher dispatcher) {
-        return Response.status(Response.Status.OK).entity(inventoryJaxRsInfo).build();
+        Object entity = inventoryJaxRsInfoRepresentation == null ? inventoryJaxRsInfo
+                : inventoryJaxRsInfoRepresentation;
+        return Response.status(Response.Status.OK).entity(entity).build();
     }
 
     private InventoryJaxRsInfo getEndpoints(ResourceMethodRegistry resourceMethodRegistry) {
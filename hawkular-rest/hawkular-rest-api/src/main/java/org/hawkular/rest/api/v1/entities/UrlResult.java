@@ -0,0 +1,66 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.api.v1.entities;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * The outcome of one item of a bulk URL operation. The status follows the HTTP semantics: for an import 201 if the URL
+ * was created, 409 if it already existed or was repeated in the input, 400 if the item was not a URL; for a delete 204
+ * if the URL is gone; 5xx if the operation failed and can be repeated.
+ *
+ * @author agent
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class UrlResult {
+    private final String url;
+    private final String id;
+    private final int status;
+    private final String message;
+
+    public UrlResult(String url, String id, int status, String message) {
+        this.url = url;
+        this.id = id;
+        this.status = status;
+        this.message = message;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override public String toString() {
+        final StringBuilder sb = new StringBuilder("UrlResult[");
+        sb.append("url='").append(url).append('\'');
+        sb.append(", id='").append(id).append('\'');
+        sb.append(", status=").append(status);
+        sb.append(']');
+        return sb.toString();
+    }
+}
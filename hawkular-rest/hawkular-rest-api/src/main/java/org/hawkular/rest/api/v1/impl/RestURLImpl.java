@@ -16,27 +16,39 @@
  */
 package org.hawkular.rest.api.v1.impl;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.function.Function;
 
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Default;
-import javax.enterprise.inject.Instance;
 import javax.inject.Inject;
+import javax.ws.rs.ServiceUnavailableException;
 import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
+import org.hawkular.rest.AsyncRequests;
+import org.hawkular.rest.PageCursor;
+import org.hawkular.rest.RequestUtil;
+import org.hawkular.rest.ResponseFormat;
+import org.hawkular.rest.ResponseUtil;
 import org.hawkular.rest.RestBase;
 import org.hawkular.rest.api.v1.entities.URL;
+import org.hawkular.rest.api.v1.entities.UrlResult;
 import org.hawkular.rest.api.v1.interfaces.RestURL;
-import org.hawkular.rx.cdi.CreateCommand;
-import org.hawkular.rx.cdi.Initialized;
-import org.hawkular.rx.cdi.UpdateCommand;
+import org.hawkular.rest.json.ApiError;
 import org.hawkular.rx.commands.hawkular.CreateUrlCommand;
 import org.hawkular.rx.commands.hawkular.DeleteUrlCommand;
 import org.hawkular.rx.commands.hawkular.GetUrlCommand;
 import org.hawkular.rx.commands.hawkular.UpdateUrlCommand;
-import org.hawkular.rx.httpclient.HttpClient;
+import org.hawkular.rx.commands.hawkular.UrlCommands;
+import org.jboss.resteasy.spi.BadRequestException;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import rx.Observable;
@@ -47,43 +59,84 @@ import rx.Observable;
  */
 public class RestURLImpl extends RestBase implements RestURL {
 
-    @Inject
-    @Default
-    private HttpClient client;
+    private static final String PROP_DELETE_PREFIX = "hawkular-services.rest.url-delete.";
 
-    @Inject
-    private ObjectMapper mapper;
+    /**
+     * The URLs of one bulk delete, their statuses are held until written.
+     */
+    private static final int DELETE_MAX_IDS = Integer.getInteger(PROP_DELETE_PREFIX + "max-ids", 1000);
 
-    @Inject
-    @Any
-    private Instance<GetUrlCommand> getUrlCommandInjector;
+    private static final int DELETE_CONCURRENCY = Integer.getInteger(PROP_DELETE_PREFIX + "concurrency", 8);
 
     @Inject
-    @CreateCommand
-    private Instance<CreateUrlCommand> createUrlCommandInjector;
-
-    @Inject
-    @UpdateCommand
-    private Instance<UpdateUrlCommand> updateUrlCommandInjector;
+    private ObjectMapper mapper;
 
     @Inject
-    @Any
-    private Instance<DeleteUrlCommand> deleteUrlCommandInjector;
+    private UrlCommands urlCommands;
 
 
     @Override
     public void getUrl(AsyncResponse asyncResponse, String id, String authToken) {
         String tenantId = getTenantId();
-        GetUrlCommand getUrlCommand =
-                getUrlCommandInjector.select(Initialized.withValues(id, authToken, tenantId)).get();
+        GetUrlCommand getUrlCommand = urlCommands.getUrl(id, authToken, tenantId);
 
-        Observable<String> observer = getUrlCommand.toObservable();
-        observer.subscribe((commandResponse) -> asyncResponse.resume(commandResponse));
+        AsyncRequests.resume(asyncResponse, getUrlCommand.toCollapsedObservable());
     }
 
     @Override
-    public void getAll(AsyncResponse asyncResponse, String authToken) {
-        getUrl(asyncResponse, null, authToken);
+    public void getAll(AsyncResponse asyncResponse, String authToken, UriInfo uriInfo) {
+        PageCursor cursor;
+        try {
+            cursor = RequestUtil.extractCursor(uriInfo);
+        } catch (IllegalArgumentException e) {
+            asyncResponse.resume(new BadRequestException(e.getMessage()));
+            return;
+        }
+        if (cursor == null) {
+            getUrl(asyncResponse, null, authToken);
+            return;
+        }
+
+        GetUrlCommand getUrlCommand = urlCommands.getUrl(null, authToken, getTenantId());
+        Function<JsonNode, List<String>> keyOf = (url) -> keyOf(url, cursor.getSort());
+        // the inventory has no keyset query, the page is selected out of the listing in one pass
+        AsyncRequests.resume(asyncResponse, getUrlCommand.toCollapsedObservable(), (urls) -> {
+            JsonNode all = readUrls(urls);
+            return ResponseUtil.cursorPagedResponse(Response.ok(), uriInfo, ResponseFormat.JSON, mapper, cursor,
+                    cursor.select(all, keyOf), keyOf, all::size).build();
+        });
+    }
+
+    private JsonNode readUrls(String urls) {
+        if (urls == null) {
+            // the fallback of the command
+            throw new ServiceUnavailableException("The URLs are not available");
+        }
+        try {
+            JsonNode all = mapper.readTree(urls);
+            if (!all.isArray()) {
+                throw new IllegalStateException("Expected an array of URLs, got " + all.getNodeType());
+            }
+            return all;
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read the URLs", e);
+        }
+    }
+
+    /**
+     * @return the values of the sort fields of the URL, followed by its id that makes the key unique
+     */
+    private static List<String> keyOf(JsonNode url, List<String> sort) {
+        List<String> key = new ArrayList<>(sort.size() + 1);
+        for (String field : sort) {
+            key.add(textOf(url.get(field)));
+        }
+        key.add(textOf(url.get("id")));
+        return key;
+    }
+
+    private static String textOf(JsonNode value) {
+        return value == null || !value.isValueNode() || value.isNull() ? null : value.asText();
     }
 
     @Override
@@ -91,39 +144,75 @@ public class RestURLImpl extends RestBase implements RestURL {
         String tenantId = getTenantId();
 
         if (url == null || url.getUrl() == null) {
-            asyncResponse.resume("URL object is empty, pass the {url: www.example.com}");
+            asyncResponse.resume(new BadRequestException("URL object is empty, pass the {url: www.example.com}"));
+            return;
         }
 
-        CreateUrlCommand createUrlCommand =
-                createUrlCommandInjector.select(Initialized.withValues(url.getUrl(), authToken, tenantId)).get();
-        Observable<String> observer = createUrlCommand.toObservable();
-        observer.subscribe((commandResponse) -> {
+        CreateUrlCommand createUrlCommand = urlCommands.createUrl(url.getUrl(), authToken, tenantId);
+        AsyncRequests.resume(asyncResponse, createUrlCommand.toObservable(), (commandResponse) -> {
             if (commandResponse != null) {
                 URI uri = URI.create(commandResponse);
-                asyncResponse.resume(Response.created(uri).build());
+                return Response.created(uri).build();
             } else {
-                asyncResponse.resume(Response.ok("Url " + url + " already exists.").build());
+                return Response.ok("Url " + url + " already exists.").build();
             }
         });
     }
 
+    @Override
+    public Response importUrls(InputStream urls, String authToken, HttpHeaders headers, UriInfo uriInfo) {
+        ResponseFormat format = ResponseFormat.negotiate(headers);
+        UrlImport urlImport = new UrlImport(urls, mapper, urlCommands, authToken, getTenantId());
+        // the results are flushed about once per batch
+        return Response.ok(format.stream(urlImport, mapper, RequestUtil.isPrettyRequested(uriInfo),
+                UrlImport.BATCH_SIZE), format.getMediaType()).build();
+    }
+
     @Override
     public void updateUrl(AsyncResponse asyncResponse, String id, URL update, String authToken) {
         String tenantId = getTenantId();
 
-        UpdateUrlCommand updateUrlCommand =
-                updateUrlCommandInjector.select(Initialized.withValues(id, update.getUrl(), authToken, tenantId)).get();
-        Observable<String> observer = updateUrlCommand.toObservable();
-        observer.subscribe((commandResponse) -> asyncResponse.resume(commandResponse));
+        if (update == null || update.getUrl() == null) {
+            asyncResponse.resume(new BadRequestException("URL object is empty, pass the {url: www.example.com}"));
+            return;
+        }
+
+        UpdateUrlCommand updateUrlCommand = urlCommands.updateUrl(id, update.getUrl(), authToken, tenantId);
+        AsyncRequests.resume(asyncResponse, updateUrlCommand.toObservable());
     }
 
     @Override
     public void deleteUrl(AsyncResponse asyncResponse, String id, String authToken) {
         String tenantId = getTenantId();
 
-        DeleteUrlCommand deleteUrlCommand =
-                deleteUrlCommandInjector.select(Initialized.withValues(id, authToken, tenantId)).get();
-        Observable<String> observer = deleteUrlCommand.toObservable();
-        observer.subscribe((commandResponse) -> asyncResponse.resume(commandResponse));
+        DeleteUrlCommand deleteUrlCommand = urlCommands.deleteUrl(id, authToken, tenantId);
+        AsyncRequests.resume(asyncResponse, deleteUrlCommand.toObservable(),
+                (deletedId) -> Response.noContent().build());
+    }
+
+    @Override
+    public Response deleteUrls(List<String> ids, String authToken, HttpHeaders headers, UriInfo uriInfo) {
+        String tenantId = getTenantId();
+
+        if (ids == null || ids.stream().anyMatch(id -> id == null || id.isEmpty())) {
+            throw new BadRequestException("Pass the ids of the URLs to delete, [id1, id2]");
+        }
+        if (ids.size() > DELETE_MAX_IDS) {
+            throw new BadRequestException("At most " + DELETE_MAX_IDS + " URLs can be deleted at once");
+        }
+
+        // each status is written and flushed once known, a slow bulk is not bound by the timeout of the async requests
+        Observable<UrlResult> results = Observable.from(new LinkedHashSet<>(ids))
+                .flatMap(id -> urlCommands.deleteUrl(id, authToken, tenantId).toObservable()
+                        .map(deletedId -> new UrlResult(null, id, 204, null))
+                        .onErrorReturn(e -> failed(id, e)), DELETE_CONCURRENCY);
+        ResponseFormat format = ResponseFormat.negotiate(headers);
+        return Response.ok(format.stream(new StreamedResults<>(results), mapper, RequestUtil.isPrettyRequested(uriInfo),
+                1), format.getMediaType()).build();
+    }
+
+    private static UrlResult failed(String id, Throwable e) {
+        Response response = AsyncRequests.toErrorResponse(e);
+        return new UrlResult(null, id, response.getStatus(), ((ApiError) response.getEntity()).getErrorMsg());
     }
 }
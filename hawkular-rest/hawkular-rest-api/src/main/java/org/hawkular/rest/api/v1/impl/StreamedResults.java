@@ -0,0 +1,105 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.api.v1.impl;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import rx.Observable;
+import rx.Subscription;
+
+/**
+ * The values of an observable, to be written by {@link org.hawkular.rest.ResponseFormat#stream} as they are emitted.
+ * The observable is subscribed once iterated and the iterating thread, the container's thread writing the response,
+ * waits for the values. Closing it, which the response does once written or once the client is gone, unsubscribes the
+ * observable.
+ * <p>
+ * The values are queued until written, so the observable is expected to emit a bounded number of them.
+ *
+ * @author agent
+ */
+final class StreamedResults<T> implements Iterable<T>, AutoCloseable {
+
+    private static final Object COMPLETED = new Object();
+
+    private final Observable<T> observable;
+
+    private final BlockingQueue<Object> queue = new LinkedBlockingQueue<>();
+
+    private volatile Subscription subscription;
+
+    StreamedResults(Observable<T> observable) {
+        this.observable = observable;
+    }
+
+    /**
+     * Subscribes the observable, it can be iterated only once.
+     */
+    @Override public Iterator<T> iterator() {
+        subscription = observable.subscribe(queue::add, e -> queue.add(new Failure(e)), () -> queue.add(COMPLETED));
+        return new Iterator<T>() {
+            private Object next;
+
+            @Override public boolean hasNext() {
+                if (next == null) {
+                    next = take();
+                }
+                if (next instanceof Failure) {
+                    throw new IllegalStateException("The results failed", ((Failure) next).cause);
+                }
+                return next != COMPLETED;
+            }
+
+            @SuppressWarnings("unchecked")
+            @Override public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result = (T) next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    @Override public void close() {
+        Subscription current = subscription;
+        if (current != null) {
+            current.unsubscribe();
+        }
+    }
+
+    private Object take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for the results", e);
+        }
+    }
+
+    private static final class Failure {
+        private final Throwable cause;
+
+        private Failure(Throwable cause) {
+            this.cause = cause;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.api.v1.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import org.hawkular.rest.RestApiLogger;
+import org.hawkular.rest.api.v1.entities.UrlResult;
+import org.hawkular.rx.commands.hawkular.UrlCommands;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import rx.Observable;
+import rx.Subscription;
+
+/**
+ * Imports the URLs of a JSON array or of NDJSON, the items being either <code>{"url": "www.example.com"}</code> or
+ * plain strings. The input is parsed as the results are iterated, so neither the input nor the results are ever held
+ * as a whole: the items are read on the thread iterating the results (the container's thread writing the response),
+ * deduplicated by their ids, grouped into batches of <code>hawkular-services.rest.url-import.batch-size</code>
+ * (default 100) and each batch is created by one {@link org.hawkular.rx.commands.hawkular.ImportUrlsCommand}, at most
+ * <code>hawkular-services.rest.url-import.concurrency</code> (default 4) of them at a time. No thread is held besides
+ * the one iterating, the reading stops while the results are not consumed.
+ * <p>
+ * The results are held back until the whole input is read, up to
+ * <code>hawkular-services.rest.url-import.max-held-results</code> (default 10000) of them. Clients commonly send the
+ * whole request before reading the response, and such a client would never read the results written while it is
+ * still sending. Only a bigger import writes its results while the input is being read, its client has to read the
+ * response concurrently with sending the request.
+ * <p>
+ * The results come in the order of the input. A malformed input ends the import with a 400 result, the URLs read
+ * before are still created. Closing the import, which the response does once written or once the client is gone,
+ * unsubscribes the batches in flight.
+ *
+ * @author agent
+ */
+final class UrlImport implements Iterable<UrlResult>, AutoCloseable {
+
+    private static final String PROP_PREFIX = "hawkular-services.rest.url-import.";
+
+    static final int BATCH_SIZE = Integer.getInteger(PROP_PREFIX + "batch-size", 100);
+
+    private static final int CONCURRENCY = Integer.getInteger(PROP_PREFIX + "concurrency", 4);
+
+    private static final int MAX_HELD_RESULTS = Integer.getInteger(PROP_PREFIX + "max-held-results", 10_000);
+
+    // the status of an item that is yet to be created
+    private static final int PENDING = 0;
+
+    private final InputStream input;
+
+    private final ObjectMapper mapper;
+
+    private final UrlCommands urlCommands;
+
+    private final String authToken;
+
+    private final String persona;
+
+    private final Deque<Batch> inFlight = new ArrayDeque<>(CONCURRENCY);
+
+    private volatile MappingIterator<JsonNode> items;
+
+    private volatile boolean closed;
+
+    UrlImport(InputStream input, ObjectMapper mapper, UrlCommands urlCommands, String authToken, String persona) {
+        this.input = input;
+        this.mapper = mapper;
+        this.urlCommands = urlCommands;
+        this.authToken = authToken;
+        this.persona = persona;
+    }
+
+    /**
+     * Starts the import, it can be iterated only once.
+     */
+    @Override public Iterator<UrlResult> iterator() {
+        try {
+            items = mapper.readerFor(JsonNode.class).readValues(input);
+        } catch (IOException e) {
+            return Collections.singletonList(malformed(e)).iterator();
+        }
+        return new Results();
+    }
+
+    @Override public void close() throws IOException {
+        closed = true;
+        synchronized (inFlight) {
+            inFlight.forEach(batch -> batch.subscription.unsubscribe());
+            inFlight.clear();
+        }
+        MappingIterator<JsonNode> current = items;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static UrlResult read(JsonNode item, Set<String> seen, UrlCommands urlCommands) {
+        JsonNode value = item.isTextual() ? item : item.get("url");
+        if (value == null || !value.isTextual() || value.textValue().isEmpty()) {
+            return new UrlResult(null, null, 400, "Expected {url: www.example.com} or a string, got " + item);
+        }
+        String url = urlCommands.normalize(value.textValue());
+        String id = urlCommands.idOf(url);
+        if (!seen.add(id)) {
+            return new UrlResult(url, id, 409, "Repeated in the import");
+        }
+        return new UrlResult(url, id, PENDING, null);
+    }
+
+    /**
+     * Reads the input and keeps up to {@link #CONCURRENCY} batches in flight, all on the iterating thread.
+     */
+    private final class Results implements Iterator<UrlResult> {
+        private final Set<String> seen = new HashSet<>();
+        private boolean inputDone;
+        private List<UrlResult> held = new ArrayList<>();
+        private Iterator<UrlResult> current = Collections.emptyIterator();
+
+        @Override public boolean hasNext() {
+            while (!current.hasNext()) {
+                while (!inputDone && inFlightCount() < CONCURRENCY && !closed) {
+                    List<UrlResult> batch = readBatch();
+                    if (!batch.isEmpty()) {
+                        submit(batch);
+                    }
+                }
+                Batch next;
+                synchronized (inFlight) {
+                    next = inFlight.peek();
+                }
+                if (next == null) {
+                    // everything is read and created
+                    current = held.iterator();
+                    held = new ArrayList<>();
+                    return current.hasNext();
+                }
+                held.addAll(next.results.join());
+                synchronized (inFlight) {
+                    inFlight.remove(next);
+                }
+                if (inputDone || held.size() >= MAX_HELD_RESULTS) {
+                    current = held.iterator();
+                    held = new ArrayList<>();
+                }
+            }
+            return true;
+        }
+
+        @Override public UrlResult next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+
+        /**
+         * @return the next at most {@link #BATCH_SIZE} items, a malformed input ends the reading with a 400 result
+         */
+        private List<UrlResult> readBatch() {
+            List<UrlResult> batch = new ArrayList<>(Math.min(BATCH_SIZE, 1024));
+            try {
+                while (batch.size() < BATCH_SIZE && items.hasNextValue()) {
+                    batch.add(read(items.nextValue(), seen, urlCommands));
+                }
+                inputDone = batch.size() < BATCH_SIZE;
+            } catch (IOException | RuntimeException e) {
+                batch.add(malformed(e));
+                inputDone = true;
+            }
+            return batch;
+        }
+    }
+
+    private int inFlightCount() {
+        synchronized (inFlight) {
+            return inFlight.size();
+        }
+    }
+
+    private void submit(List<UrlResult> batch) {
+        CompletableFuture<List<UrlResult>> results = new CompletableFuture<>();
+        Subscription subscription = create(batch).subscribe(results::complete, results::completeExceptionally,
+                () -> results.completeExceptionally(new IllegalStateException("The import of a batch had no result")));
+        synchronized (inFlight) {
+            if (closed) {
+                subscription.unsubscribe();
+                return;
+            }
+            inFlight.add(new Batch(results, subscription));
+        }
+    }
+
+    private Observable<List<UrlResult>> create(List<UrlResult> batch) {
+        Map<String, String> urls = new LinkedHashMap<>();
+        batch.stream().filter(result -> result.getStatus() == PENDING)
+                .forEach(result -> urls.put(result.getId(), result.getUrl()));
+        if (urls.isEmpty()) {
+            return Observable.just(batch);
+        }
+        return urlCommands.importUrls(urls, authToken, persona).toObservable()
+                .map(statuses -> complete(batch, statuses, null))
+                .onErrorReturn(e -> {
+                    RestApiLogger.LOGGER.debugf(e, "Import of %d URLs failed", urls.size());
+                    return complete(batch, Collections.emptyMap(), e.getMessage());
+                });
+    }
+
+    private static List<UrlResult> complete(List<UrlResult> batch, Map<String, Integer> statuses,
+                                                  String failure) {
+        return batch.stream()
+                .map(result -> result.getStatus() != PENDING ? result : new UrlResult(result.getUrl(),
+                        result.getId(), statuses.getOrDefault(result.getId(), 500), failure))
+                .collect(Collectors.toList());
+    }
+
+    private static UrlResult malformed(Throwable e) {
+        return new UrlResult(null, null, 400, "Malformed input, the import stopped: " + e.getMessage());
+    }
+
+    private static final class Batch {
+        private final CompletableFuture<List<UrlResult>> results;
+        private final Subscription subscription;
+
+        private Batch(CompletableFuture<List<UrlResult>> results, Subscription subscription) {
+            this.results = results;
+            this.subscription = subscription;
+        }
+    }
+}
@@ -18,6 +18,9 @@ package org.hawkular.rest.api.v1.interfaces;
 
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON;
 
+import java.io.InputStream;
+import java.util.List;
+
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -29,6 +32,10 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.container.AsyncResponse;
 import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 
 import org.hawkular.rest.api.v1.entities.URL;
 import org.hawkular.rest.json.ApiError;
@@ -61,14 +68,20 @@ public interface RestURL {
                                  @HeaderParam("Authorization") String authToken);
 
     @GET
-    @ApiOperation("Retrieves all URLs of the currently logged in persona")
+    @ApiOperation(value = "Retrieves all URLs of the currently logged in persona",
+                  notes = "With the cursor query parameter the URLs are returned a page at a time. An empty cursor " +
+                          "asks for the first page, sorted by the sort fields (default id) in the order directions " +
+                          "(asc or desc) and with per_page URLs (default 100). The next page is in the next link of " +
+                          "the Link header. The X-Total-Count header is only sent with total_count=true.")
     @ApiResponses({
                           @ApiResponse(code = 200, message = "OK"),
+                          @ApiResponse(code = 400, message = "Invalid cursor or page size", response = ApiError.class),
                           @ApiResponse(code = 401, message = "Unauthorized access"),
                           @ApiResponse(code = 404, message = "Tenant doesn't exist", response = ApiError.class),
                           @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
                   }) void getAll(@Suspended AsyncResponse asyncResponse,
-                                 @HeaderParam("Authorization") String authToken);
+                                 @HeaderParam("Authorization") String authToken,
+                                 @Context UriInfo uriInfo);
 
     @POST
     @Path("/")
@@ -82,6 +95,26 @@ public interface RestURL {
                                     @ApiParam(required = true) URL url,
                                     @HeaderParam("Authorization") String authToken);
 
+    @POST
+    @Path("/import")
+    @Consumes({APPLICATION_JSON, "application/x-ndjson"})
+    @Produces({APPLICATION_JSON, "application/x-ndjson", "application/x-jackson-smile"})
+    @ApiOperation(value = "Creates many URLs of the currently logged in persona",
+                  notes = "Accepts a JSON array or NDJSON of {url: www.example.com} objects or of plain strings. " +
+                          "The status of each URL is streamed back in the input order, in the format of the Accept " +
+                          "header. The statuses are sent once the whole input is read, unless there are more than " +
+                          "10000 of them: then they are sent while the input is still read, and the client has to " +
+                          "read the response while sending the request.")
+    @ApiResponses({
+                          @ApiResponse(code = 200, message = "OK, the status of each URL is in the body"),
+                          @ApiResponse(code = 401, message = "Unauthorized access"),
+                          @ApiResponse(code = 406, message = "None of the accepted media types is supported"),
+                          @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
+                  }) Response importUrls(@ApiParam(required = true) InputStream urls,
+                                         @HeaderParam("Authorization") String authToken,
+                                         @Context HttpHeaders headers,
+                                         @Context UriInfo uriInfo);
+
     @PUT
     @Path("/")
     @ApiOperation("Updates properties of the URL")
@@ -107,4 +140,22 @@ public interface RestURL {
                   }) void deleteUrl(@Suspended AsyncResponse asyncResponse,
                                     @PathParam("urlId") String id,
                                     @HeaderParam("Authorization") String authToken);
+
+    @POST
+    @Path("/delete")
+    @Produces({APPLICATION_JSON, "application/x-ndjson", "application/x-jackson-smile"})
+    @ApiOperation(value = "Deletes many URLs of the currently logged in persona and all their data",
+                  notes = "Accepts a JSON array of URL ids. The URLs are deleted in parallel and the status of each " +
+                          "is streamed back as soon as it's known, in the format of the Accept header. The failed " +
+                          "ones can be simply deleted again.")
+    @ApiResponses({
+                          @ApiResponse(code = 200, message = "OK, the status of each URL is in the body"),
+                          @ApiResponse(code = 400, message = "Invalid input data", response = ApiError.class),
+                          @ApiResponse(code = 401, message = "Unauthorized access"),
+                          @ApiResponse(code = 406, message = "None of the accepted media types is supported"),
+                          @ApiResponse(code = 500, message = "Server error", response = ApiError.class)
+                  }) Response deleteUrls(@ApiParam(required = true) List<String> ids,
+                                         @HeaderParam("Authorization") String authToken,
+                                         @Context HttpHeaders headers,
+                                         @Context UriInfo uriInfo);
 }
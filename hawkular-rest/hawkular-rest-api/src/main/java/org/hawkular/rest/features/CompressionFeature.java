@@ -21,10 +21,6 @@ package org.hawkular.rest.features;
  * @since 0.2.0
  */
 
-import static java.util.Arrays.asList;
-
-import java.util.HashSet;
-
 import javax.ws.rs.ConstrainedTo;
 import javax.ws.rs.RuntimeType;
 import javax.ws.rs.container.DynamicFeature;
@@ -33,14 +29,11 @@ import javax.ws.rs.core.FeatureContext;
 import javax.ws.rs.ext.Provider;
 import javax.ws.rs.ext.WriterInterceptor;
 
-import org.jboss.resteasy.plugins.interceptors.encoding.ServerContentEncodingAnnotationFilter;
-
 @Provider
 @ConstrainedTo(RuntimeType.SERVER)
 public class CompressionFeature implements DynamicFeature {
 
-    private WriterInterceptor compressionFilter =
-            new ServerContentEncodingAnnotationFilter(new HashSet<>(asList("gzip")));
+    private WriterInterceptor compressionFilter = new CompressionInterceptor();
 
     @Override
     public void configure(ResourceInfo resourceInfo, FeatureContext context) {
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.features;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+import org.hawkular.rest.json.CachedRepresentation;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
+
+/**
+ * Compresses the response bodies according to the {@link CompressionPolicy}. The body is held back until it reaches
+ * the minimum size, so small responses are sent as they are and the <i>Content-Encoding</i> header is only added
+ * once the compression has actually started. {@link CachedRepresentation}s are sent in their cached encoded form.
+ * Responses that already carry a <i>Content-Encoding</i> are left alone.
+ *
+ * @author agent
+ */
+@Priority(Priorities.ENTITY_CODER)
+public class CompressionInterceptor implements WriterInterceptor {
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException, WebApplicationException {
+        MultivaluedMap<String, Object> headers = context.getHeaders();
+        if (headers.containsKey(HttpHeaders.CONTENT_ENCODING) || !CompressionPolicy.isCompressible(context
+                .getMediaType())) {
+            context.proceed();
+            return;
+        }
+
+        headers.add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        HttpHeaders requestHeaders = ResteasyProviderFactory.getContextData(HttpHeaders.class);
+        String encoding = requestHeaders == null ? null
+                : CompressionPolicy.negotiate(requestHeaders.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+        if (encoding == null) {
+            context.proceed();
+            return;
+        }
+
+        if (context.getEntity() instanceof CachedRepresentation) {
+            CachedRepresentation representation = (CachedRepresentation) context.getEntity();
+            // the same decision as CachedRepresentation.negotiateEncoding(), which picked the entity tag
+            if (!CompressionPolicy.isWorthCompressing(representation.getBytes().length)) {
+                context.proceed();
+                return;
+            }
+            // the precompressed bytes are written directly, the rest of the chain would only copy them
+            headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+            context.getOutputStream().write(representation.getEncoded(encoding));
+            return;
+        }
+
+        OutputStream original = context.getOutputStream();
+        ThresholdOutputStream out = new ThresholdOutputStream(original, encoding, headers);
+        context.setOutputStream(out);
+        try {
+            context.proceed();
+            out.finish();
+        } finally {
+            out.end();
+            context.setOutputStream(original);
+        }
+    }
+
+    /**
+     * Buffers the first {@link CompressionPolicy#MIN_SIZE} bytes, then switches to the encoded output. Flushes are
+     * ignored until then, the serializers flush at the end of every entity. The encoder writes through a
+     * {@link ShieldOutputStream}, so it can be closed, which releases its native deflater, without closing the target.
+     */
+    private static final class ThresholdOutputStream extends OutputStream {
+        private final OutputStream target;
+        private final String encoding;
+        private final MultivaluedMap<String, Object> headers;
+        private ByteArrayOutputStream buffer;
+        private ShieldOutputStream shield;
+        private DeflaterOutputStream encoder;
+        private boolean finished;
+
+        private ThresholdOutputStream(OutputStream target, String encoding, MultivaluedMap<String, Object> headers) {
+            this.target = target;
+            this.encoding = encoding;
+            this.headers = headers;
+            this.buffer = new ByteArrayOutputStream(Math.min(CompressionPolicy.MIN_SIZE, 8192));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (encoder != null) {
+                encoder.write(b);
+            } else {
+                buffer.write(b);
+                switchIfLarge();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (encoder != null) {
+                encoder.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+                switchIfLarge();
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (encoder != null) {
+                encoder.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            finish();
+        }
+
+        private void switchIfLarge() throws IOException {
+            if (CompressionPolicy.isWorthCompressing(buffer.size())) {
+                // nothing has been written to the target yet, so the headers are still not committed
+                headers.putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+                headers.remove(HttpHeaders.CONTENT_LENGTH);
+                shield = new ShieldOutputStream(target);
+                encoder = CompressionPolicy.encode(encoding, shield);
+                buffer.writeTo(encoder);
+                buffer = null;
+            }
+        }
+
+        private void finish() throws IOException {
+            if (finished) {
+                return;
+            }
+            finished = true;
+            if (encoder != null) {
+                encoder.close();
+            } else {
+                buffer.writeTo(target);
+                buffer = null;
+            }
+            target.flush();
+        }
+
+        /**
+         * Releases the deflater, also when the entity could not be written. Anything the encoder still has pending
+         * at that point is discarded rather than written to the target.
+         */
+        private void end() {
+            if (encoder != null) {
+                shield.discard = true;
+                try {
+                    encoder.close();
+                } catch (IOException e) {
+                    // writes are discarded, can't happen
+                }
+            }
+        }
+    }
+
+    /**
+     * Passes the writes through to the target, but never closes it.
+     */
+    private static final class ShieldOutputStream extends FilterOutputStream {
+        private boolean discard;
+
+        private ShieldOutputStream(OutputStream target) {
+            super(target);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!discard) {
+                out.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (!discard) {
+                out.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!discard) {
+                out.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.features;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.MediaType;
+
+/**
+ * Decides whether and how the responses are compressed. The following system properties can be defined:
+ * <pre>
+ * hawkular-services.rest.compression.min-size       responses smaller than this (in bytes) are sent uncompressed,
+ *                                                   default 1024
+ * hawkular-services.rest.compression.level          deflate level 1 (fastest) - 9 (smallest), default 1
+ * hawkular-services.rest.compression.encodings      supported encodings in the order of preference, used to break
+ *                                                   ties in <i>Accept-Encoding</i>, default "gzip,deflate"
+ * hawkular-services.rest.compression.excluded-types media types that are never compressed, default
+ *                                                   "image/*,audio/*,video/*,application/zip,application/gzip"
+ * </pre>
+ * An empty <i>encodings</i> list disables the compression.
+ *
+ * @author agent
+ */
+public final class CompressionPolicy {
+
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+
+    private static final String PROP_PREFIX = "hawkular-services.rest.compression.";
+
+    static final int MIN_SIZE = Integer.getInteger(PROP_PREFIX + "min-size", 1024);
+    private static final int LEVEL = Integer.getInteger(PROP_PREFIX + "level", Deflater.BEST_SPEED);
+    private static final List<String> ENCODINGS = parseList(System.getProperty(PROP_PREFIX + "encodings",
+            GZIP + "," + DEFLATE));
+    private static final List<MediaType> EXCLUDED_TYPES = parseMediaTypes(System.getProperty(
+            PROP_PREFIX + "excluded-types", "image/*,audio/*,video/*,application/zip,application/gzip"));
+
+    private CompressionPolicy() {
+    }
+
+    /**
+     * @param mediaType the media type of the response, may be null
+     * @return false if responses of that type are never compressed
+     */
+    public static boolean isCompressible(MediaType mediaType) {
+        if (ENCODINGS.isEmpty()) {
+            return false;
+        }
+        if (mediaType != null) {
+            for (MediaType excluded : EXCLUDED_TYPES) {
+                if (excluded.isCompatible(mediaType)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param size the size of the response body in bytes
+     * @return true if the body is large enough for the compression to pay off
+     */
+    public static boolean isWorthCompressing(long size) {
+        return size >= MIN_SIZE;
+    }
+
+    /**
+     * Picks the supported encoding with the highest quality in the <i>Accept-Encoding</i> header.
+     *
+     * @param acceptEncoding the value of the header, may be null
+     * @return the encoding or null if the response should not be encoded
+     */
+    public static String negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty() || ENCODINGS.isEmpty()) {
+            return null;
+        }
+        String best = null;
+        double bestQuality = 0;
+        int bestRank = Integer.MAX_VALUE;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ENGLISH);
+            double quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (param.startsWith("q=")) {
+                    try {
+                        quality = Double.parseDouble(param.substring(2));
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+            if ("*".equals(coding)) {
+                coding = ENCODINGS.get(0);
+            }
+            int rank = ENCODINGS.indexOf(coding);
+            if (rank < 0 || quality <= 0) {
+                continue;
+            }
+            if (quality > bestQuality || (quality == bestQuality && rank < bestRank)) {
+                best = coding;
+                bestQuality = quality;
+                bestRank = rank;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @param encoding one of the supported encodings
+     * @param out      the stream to write the encoded data to, <code>close()</code> of the returned stream completes
+     *                 the encoding, releases the deflater and closes <code>out</code>
+     * @return the encoding stream, {@link OutputStream#flush()} flushes the data compressed so far
+     */
+    public static DeflaterOutputStream encode(String encoding, OutputStream out) throws IOException {
+        if (GZIP.equals(encoding)) {
+            return new GZIPOutputStream(out, 8192, true) {
+                {
+                    def.setLevel(LEVEL);
+                }
+            };
+        }
+        if (DEFLATE.equals(encoding)) {
+            return new DeflaterOutputStream(out, new Deflater(LEVEL), 8192, true) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unsupported encoding " + encoding);
+    }
+
+    /**
+     * @return the data encoded with the given encoding
+     */
+    public static byte[] encode(String encoding, byte[] data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (DeflaterOutputStream out = encode(encoding, bytes)) {
+            out.write(data);
+        } catch (IOException e) {
+            // writing to memory, can't happen
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<String> parseList(String value) {
+        List<String> values = new ArrayList<>();
+        for (String v : value.split(",")) {
+            v = v.trim().toLowerCase(Locale.ENGLISH);
+            if ((GZIP.equals(v) || DEFLATE.equals(v)) && !values.contains(v)) {
+                values.add(v);
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+
+    private static List<MediaType> parseMediaTypes(String value) {
+        List<MediaType> types = new ArrayList<>();
+        for (String v : value.split(",")) {
+            v = v.trim();
+            if (!v.isEmpty()) {
+                try {
+                    types.add(MediaType.valueOf(v));
+                } catch (IllegalArgumentException e) {
+                    // ignore the invalid type
+                }
+            }
+        }
+        return Collections.unmodifiableList(types);
+    }
+}
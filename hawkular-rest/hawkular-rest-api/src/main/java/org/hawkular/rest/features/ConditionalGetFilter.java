@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.features;
+
+import java.io.IOException;
+
+import javax.ws.rs.HttpMethod;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.Provider;
+
+import org.hawkular.rest.json.CachedRepresentation;
+
+/**
+ * Adds the <i>ETag</i> header to the successful GET responses of the methods annotated with {@link ConditionalGet}
+ * and replaces them with a bodiless 304 if the tag matches the <i>If-None-Match</i> header of the request. The tag of a
+ * {@link CachedRepresentation} is the one of the content-coding it is sent with.
+ *
+ * @author agent
+ */
+@Provider
+@ConditionalGet
+public class ConditionalGetFilter implements ContainerResponseFilter {
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+            throws IOException {
+        if (responseContext.getStatus() != Response.Status.OK.getStatusCode()
+                || !(HttpMethod.GET.equals(requestContext.getMethod())
+                || HttpMethod.HEAD.equals(requestContext.getMethod()))) {
+            return;
+        }
+
+        String entityTag;
+        if (responseContext.getEntity() instanceof CachedRepresentation) {
+            CachedRepresentation representation = (CachedRepresentation) responseContext.getEntity();
+            // the tag is that of the variant the CompressionInterceptor is going to send
+            String encoding = responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING) ? null
+                    : representation.negotiateEncoding(responseContext.getMediaType(),
+                            requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+            EntityTag tag = representation.getEntityTag(encoding);
+            responseContext.getHeaders().putSingle(HttpHeaders.ETAG, tag);
+            entityTag = tag.getValue();
+            if (CompressionPolicy.isCompressible(responseContext.getMediaType())
+                    && matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+                // a 304 has no entity, so the CompressionInterceptor doesn't get to add it
+                responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            }
+        } else {
+            String header = responseContext.getHeaderString(HttpHeaders.ETAG);
+            if (header == null) {
+                return;
+            }
+            entityTag = EntityTag.valueOf(header).getValue();
+        }
+
+        if (matches(requestContext.getHeaderString(HttpHeaders.IF_NONE_MATCH), entityTag)) {
+            responseContext.setStatus(Response.Status.NOT_MODIFIED.getStatusCode());
+            responseContext.setEntity(null);
+        }
+    }
+
+    /**
+     * If-None-Match uses the weak comparison, so the W/ prefix of the listed tags is ignored.
+     */
+    static boolean matches(String ifNoneMatch, String entityTag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if ("*".equals(candidate)) {
+                return true;
+            }
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.length() >= 2 && candidate.startsWith("\"") && candidate.endsWith("\"")
+                    && candidate.regionMatches(1, entityTag, 0, candidate.length() - 2)
+                    && entityTag.length() == candidate.length() - 2) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
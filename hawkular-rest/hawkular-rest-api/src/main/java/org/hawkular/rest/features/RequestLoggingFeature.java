@@ -0,0 +1,52 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.features;
+
+import static org.hawkular.rest.RestApiLogger.REQUESTS_LOGGER;
+
+import javax.ws.rs.ConstrainedTo;
+import javax.ws.rs.RuntimeType;
+import javax.ws.rs.container.DynamicFeature;
+import javax.ws.rs.container.ResourceInfo;
+import javax.ws.rs.core.FeatureContext;
+import javax.ws.rs.ext.Provider;
+
+import org.hawkular.rest.interceptors.LoggingInterceptor;
+
+/**
+ * Binds the {@link LoggingInterceptor} to the resource methods, but only if the <code>org.hawkular.rest.requests</code>
+ * category is on DEBUG when the application is deployed, so the calls don't pay for request logging otherwise.
+ * <p>
+ * To be able to switch the logging on and off at runtime, set the
+ * <code>hawkular-services.rest.request-logging.dynamic</code> system property to true. The interceptor is then always
+ * bound and checks the level on every call.
+ *
+ * @author agent
+ */
+@Provider
+@ConstrainedTo(RuntimeType.SERVER)
+public class RequestLoggingFeature implements DynamicFeature {
+
+    private static final boolean DYNAMIC = Boolean.getBoolean("hawkular-services.rest.request-logging.dynamic");
+
+    @Override
+    public void configure(ResourceInfo resourceInfo, FeatureContext context) {
+        if (resourceInfo.getResourceMethod() != null && (DYNAMIC || REQUESTS_LOGGER.isDebugEnabled())) {
+            context.register(new LoggingInterceptor(resourceInfo.getResourceMethod()));
+        }
+    }
+}
@@ -18,66 +18,175 @@ package org.hawkular.rest.interceptors;
 
 import static org.hawkular.rest.RestApiLogger.REQUESTS_LOGGER;
 
-import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.lang.reflect.Method;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
 
 import javax.ws.rs.container.ContainerRequestContext;
 import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
 import javax.ws.rs.core.MultivaluedMap;
-import javax.ws.rs.ext.Provider;
-
-import org.apache.commons.io.IOUtils;
-import org.hawkular.rx.cdi.JacksonConfig;
-import org.jboss.resteasy.annotations.interception.ServerInterceptor;
-import org.jboss.resteasy.core.interception.PostMatchContainerRequestContext;
-
-import com.fasterxml.jackson.databind.ObjectMapper;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
 
 /**
+ * Logs the REST calls to the <code>org.hawkular.rest.requests</code> category on the DEBUG level. It is bound to the
+ * resource methods by the {@link org.hawkular.rest.features.RequestLoggingFeature} only.
+ * <p>
+ * The request body is not buffered up front, instead the entity stream is teed while the resource reads it and at most
+ * <i>max-body-bytes</i> of it are kept. The call is logged once the response entity is written, so that input read
+ * while the response streams, or after an asynchronous resume, is included. A response without an entity is logged
+ * from the response filter. The following system properties can be defined:
+ * <pre>
+ * hawkular-services.rest.request-logging.sample-rate    fraction of the calls that are logged, default 1.0
+ * hawkular-services.rest.request-logging.max-body-bytes max number of body bytes logged, default 4096
+ * </pre>
+ *
  * @author Jirka Kremser
  * @since 0.2.0
  */
+public class LoggingInterceptor implements ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
 
-@Provider
-@ServerInterceptor
-public class LoggingInterceptor implements ContainerRequestFilter {
+    private static final String PROP_PREFIX = "hawkular-services.rest.request-logging.";
+    private static final double SAMPLE_RATE = parseSampleRate(System.getProperty(PROP_PREFIX + "sample-rate"));
+    private static final int MAX_BODY_BYTES = Integer.getInteger(PROP_PREFIX + "max-body-bytes", 4096);
 
-    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String CALL_PROPERTY = LoggingInterceptor.class.getName() + ".call";
 
-    static {
-        JacksonConfig.initializeObjectMapper(MAPPER);
+    private final String javaMethod;
+
+    public LoggingInterceptor(Method javaMethod) {
+        this.javaMethod = javaMethod.toGenericString();
     }
 
     @Override
     public void filter(ContainerRequestContext containerRequestContext) throws IOException {
-        if (REQUESTS_LOGGER.isDebugEnabled()) {
-            final String method = containerRequestContext.getMethod();
-            final String url = containerRequestContext.getUriInfo().getRequestUri().toString();
-            final StringBuilder headersStr = new StringBuilder();
-            MultivaluedMap<String, String> headers = containerRequestContext.getHeaders();
-            for (MultivaluedMap.Entry<String, List<String>> header : headers.entrySet()) {
-                headersStr.append(header.getKey()).append(": ").append(header.getValue()).append('\n');
+        // the level can be changed at runtime, so it is checked on every call
+        if (!REQUESTS_LOGGER.isDebugEnabled()
+                || (SAMPLE_RATE < 1.0 && ThreadLocalRandom.current().nextDouble() >= SAMPLE_RATE)) {
+            return;
+        }
+
+        final String method = containerRequestContext.getMethod();
+        final String url = containerRequestContext.getUriInfo().getRequestUri().toString();
+        final StringBuilder headersStr = new StringBuilder();
+        MultivaluedMap<String, String> headers = containerRequestContext.getHeaders();
+        for (MultivaluedMap.Entry<String, List<String>> header : headers.entrySet()) {
+            headersStr.append(header.getKey()).append(": ").append(header.getValue()).append('\n');
+        }
+
+        LoggedCall call = new LoggedCall(method, url, headersStr.toString());
+        if (("POST".equals(method) || "PUT".equals(method)) && MAX_BODY_BYTES > 0) {
+            call.body = new CapturingInputStream(containerRequestContext.getEntityStream(), MAX_BODY_BYTES);
+            containerRequestContext.setEntityStream(call.body);
+        }
+        containerRequestContext.setProperty(CALL_PROPERTY, call);
+    }
+
+    @Override
+    public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext) {
+        // a response with an entity is logged by aroundWriteTo, once the entity is written
+        if (!responseContext.hasEntity()) {
+            LoggedCall call = (LoggedCall) requestContext.getProperty(CALL_PROPERTY);
+            requestContext.removeProperty(CALL_PROPERTY);
+            log(call);
+        }
+    }
+
+    @Override
+    public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+        try {
+            context.proceed();
+        } finally {
+            LoggedCall call = (LoggedCall) context.getProperty(CALL_PROPERTY);
+            context.removeProperty(CALL_PROPERTY);
+            log(call);
+        }
+    }
+
+    private void log(LoggedCall call) {
+        if (call != null) {
+            REQUESTS_LOGGER.restCall(call.method, call.url, call.headers,
+                    call.body == null ? "empty" : call.body.captured(), javaMethod);
+        }
+    }
+
+    private static double parseSampleRate(String value) {
+        try {
+            return value == null ? 1.0 : Math.max(0.0, Math.min(1.0, Double.parseDouble(value)));
+        } catch (NumberFormatException e) {
+            return 1.0;
+        }
+    }
+
+    private static final class LoggedCall {
+        private final String method;
+        private final String url;
+        private final String headers;
+        private CapturingInputStream body;
+
+        private LoggedCall(String method, String url, String headers) {
+            this.method = method;
+            this.url = url;
+            this.headers = headers;
+        }
+    }
+
+    /**
+     * Passes the entity through to the resource and keeps a copy of its first <code>limit</code> bytes.
+     */
+    private static final class CapturingInputStream extends FilterInputStream {
+        private final ByteArrayOutputStream copy;
+        private final int limit;
+        private long total;
+
+        private CapturingInputStream(InputStream in, int limit) {
+            super(in);
+            this.limit = limit;
+            this.copy = new ByteArrayOutputStream(Math.min(limit, 1024));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                if (total < limit) {
+                    copy.write(b);
+                }
+                total++;
             }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                if (total < limit) {
+                    copy.write(b, off, (int) Math.min(n, limit - total));
+                }
+                total += n;
+            }
+            return n;
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
 
-            String json = null;
-            if ("POST".equals(method) || "PUT".equals(method)) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                IOUtils.copy(containerRequestContext.getEntityStream(), baos);
-                byte[] jsonBytes = baos.toByteArray();
-                json = new String(jsonBytes, "UTF-8");
-                Object jsonObject = MAPPER.readValue(json, Object.class);
-                json = MAPPER.writeValueAsString(jsonObject);
-                containerRequestContext.setEntityStream(new ByteArrayInputStream(jsonBytes));
+        private String captured() {
+            if (total == 0) {
+                return "empty";
             }
-            PostMatchContainerRequestContext pmContext = (PostMatchContainerRequestContext) containerRequestContext;
-            // this should be safe, because if some calling non-existent api the javax.ws.rs.NotFoundException should
-            // be already thrown and this interceptor isn't triggered
-            Method javaMethod = pmContext.getResourceMethod().getMethod();
-            REQUESTS_LOGGER.restCall(method, url, headersStr.toString(), json == null ? "empty" : json,
-                    javaMethod.toGenericString());
+            String body = new String(copy.toByteArray(), StandardCharsets.UTF_8);
+            return total > limit ? body + "... (" + (total - limit) + " more bytes read)" : body;
         }
     }
 }
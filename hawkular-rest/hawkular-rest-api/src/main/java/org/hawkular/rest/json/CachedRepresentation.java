@@ -0,0 +1,116 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.json;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.MediaType;
+
+import org.hawkular.rest.features.CompressionPolicy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * The serialized form of a value that rarely changes, to be returned as the entity of a response instead of the value
+ * itself. The value is serialized once and the encoded (compressed) variants are computed on the first request for
+ * them, the {@link org.hawkular.rest.features.CompressionInterceptor} then sends the cached bytes as they are.
+ * <p>
+ * The strong entity tag of the bytes is computed up front too, so a resource method annotated with
+ * {@link org.hawkular.rest.features.ConditionalGet} answers a matching <i>If-None-Match</i> with a 304. Each
+ * content-coding is a different representation, so the tag of an encoded variant carries the coding as a suffix.
+ *
+ * @author agent
+ */
+public final class CachedRepresentation {
+
+    private final byte[] bytes;
+    private final String digest;
+    private final EntityTag entityTag;
+    private final ConcurrentMap<String, byte[]> encoded = new ConcurrentHashMap<>(2);
+    private final ConcurrentMap<String, EntityTag> encodedEntityTags = new ConcurrentHashMap<>(2);
+
+    public CachedRepresentation(byte[] bytes) {
+        this.bytes = bytes;
+        this.digest = digest(bytes);
+        this.entityTag = new EntityTag(digest);
+    }
+
+    public static CachedRepresentation of(Object value, ObjectWriter writer) throws JsonProcessingException {
+        return new CachedRepresentation(writer.writeValueAsBytes(value));
+    }
+
+    /**
+     * @return the serialized value, must not be modified
+     */
+    public byte[] getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return the strong entity tag of the serialized value
+     */
+    public EntityTag getEntityTag() {
+        return entityTag;
+    }
+
+    /**
+     * @param encoding one of the encodings supported by the {@link CompressionPolicy}, null for the identity
+     * @return the strong entity tag of the serialized value encoded with the encoding
+     */
+    public EntityTag getEntityTag(String encoding) {
+        if (encoding == null) {
+            return entityTag;
+        }
+        return encodedEntityTags.computeIfAbsent(encoding, e -> new EntityTag(digest + "-" + e));
+    }
+
+    /**
+     * @param mediaType      the media type of the response
+     * @param acceptEncoding the <i>Accept-Encoding</i> header of the request, may be null
+     * @return the encoding this representation is sent with, null if it is sent as it is
+     */
+    public String negotiateEncoding(MediaType mediaType, String acceptEncoding) {
+        if (!CompressionPolicy.isCompressible(mediaType) || !CompressionPolicy.isWorthCompressing(bytes.length)) {
+            return null;
+        }
+        return CompressionPolicy.negotiate(acceptEncoding);
+    }
+
+    /**
+     * @param encoding one of the encodings supported by the {@link CompressionPolicy}
+     * @return the serialized value encoded with the encoding, must not be modified
+     */
+    public byte[] getEncoded(String encoding) {
+        return encoded.computeIfAbsent(encoding, e -> CompressionPolicy.encode(e, bytes));
+    }
+
+    private static String digest(byte[] bytes) {
+        try {
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(MessageDigest.getInstance("SHA-256").digest(bytes));
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest.json;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.ext.MessageBodyWriter;
+import javax.ws.rs.ext.Provider;
+
+/**
+ * Writes the cached bytes of a {@link CachedRepresentation} as they are, whatever the media type of the response.
+ *
+ * @author agent
+ */
+@Provider
+@Produces(MediaType.WILDCARD)
+public class CachedRepresentationWriter implements MessageBodyWriter<CachedRepresentation> {
+
+    @Override
+    public boolean isWriteable(Class<?> type, Type genericType, Annotation[] annotations, MediaType mediaType) {
+        return CachedRepresentation.class.isAssignableFrom(type);
+    }
+
+    @Override
+    public long getSize(CachedRepresentation representation, Class<?> type, Type genericType,
+                        Annotation[] annotations, MediaType mediaType) {
+        // the length depends on the encoding chosen later on
+        return -1;
+    }
+
+    @Override
+    public void writeTo(CachedRepresentation representation, Class<?> type, Type genericType,
+                        Annotation[] annotations, MediaType mediaType, MultivaluedMap<String, Object> httpHeaders,
+                        OutputStream entityStream) throws IOException {
+        entityStream.write(representation.getBytes());
+    }
+}
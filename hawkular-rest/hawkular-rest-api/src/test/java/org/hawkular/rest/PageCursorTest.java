@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * The cursor tokens have to carry any key back unchanged, and the pages selected with them have to cover the whole
+ * collection exactly once.
+ *
+ * @author agent
+ */
+public class PageCursorTest {
+
+    @Test
+    public void roundTrip() {
+        PageCursor cursor = new PageCursor(25, asList("name", "id"), singletonList("desc"), asList("b", "url-2"));
+        assertCursor(cursor, PageCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    public void firstPageCursor() {
+        PageCursor cursor = PageCursor.decode(new PageCursor(10, null, null, null).encode());
+        assertTrue(cursor.isFirst());
+        assertEquals(emptyList(), cursor.getSort());
+    }
+
+    @Test
+    public void nullValuesStayNull() {
+        PageCursor cursor = new PageCursor(10, singletonList("name"), null, asList(null, "", "x"));
+        assertEquals(asList(null, "", "x"), PageCursor.decode(cursor.encode()).getLastKey());
+    }
+
+    @Test
+    public void valuesOver64KB() {
+        char[] chars = new char[70000];
+        Arrays.fill(chars, '\u00e9');
+        String big = new String(chars);
+        PageCursor cursor = new PageCursor(10, singletonList("name"), null, asList(big, "id"));
+        assertEquals(asList(big, "id"), PageCursor.decode(cursor.encode()).getLastKey());
+    }
+
+    @Test
+    public void malformedTokens() {
+        String valid = new PageCursor(10, singletonList("id"), null, singletonList("a")).encode();
+        assertMalformed("not base64 !");
+        assertMalformed("");
+        assertMalformed(valid.substring(0, valid.length() - 2));
+        assertMalformed(valid + "AAAA");
+        assertMalformed(new PageCursor(10, null, null, null).encode().replaceFirst("^A", "B"));
+    }
+
+    @Test
+    public void nullsSortFirstAndDescendingIsReversed() {
+        PageCursor ascending = new PageCursor(10, singletonList("name"), null, null);
+        assertTrue(ascending.keyOrder().compare(asList(null, "b"), asList("a", "a")) < 0);
+        assertTrue(ascending.keyOrder().compare(asList("a", "a"), asList("a", "b")) < 0);
+
+        PageCursor descending = new PageCursor(10, singletonList("name"), singletonList("DESC"), null);
+        assertTrue(descending.keyOrder().compare(asList("b", "z"), asList("a", "a")) < 0);
+        // the values past the sort fields are always ascending
+        assertTrue(descending.keyOrder().compare(asList("a", "a"), asList("a", "b")) < 0);
+    }
+
+    @Test
+    public void pagesCoverTheCollectionOnce() {
+        List<List<String>> elements = new ArrayList<>();
+        for (int i = 0; i < 57; i++) {
+            // many equal names and some missing ones, the id makes the keys unique
+            elements.add(asList(i % 7 == 0 ? null : "name-" + (i % 5), String.format("url-%02d", i)));
+        }
+        Collections.shuffle(elements);
+
+        for (String order : asList("asc", "desc")) {
+            PageCursor cursor = new PageCursor(10, singletonList("name"), singletonList(order), null);
+            List<List<String>> seen = new ArrayList<>();
+            int pages = 0;
+            while (true) {
+                List<List<String>> selected = cursor.select(elements, (e) -> e);
+                boolean hasNext = selected.size() > cursor.getPageSize();
+                List<List<String>> page = hasNext ? selected.subList(0, cursor.getPageSize()) : selected;
+                seen.addAll(page);
+                pages++;
+                if (!hasNext) {
+                    break;
+                }
+                cursor = PageCursor.decode(cursor.next(page.get(page.size() - 1)).encode());
+            }
+
+            assertEquals(6, pages);
+            List<List<String>> expected = new ArrayList<>(elements);
+            expected.sort(cursor.keyOrder());
+            assertEquals(order, expected, seen);
+        }
+    }
+
+    private static void assertCursor(PageCursor expected, PageCursor actual) {
+        assertEquals(expected.getPageSize(), actual.getPageSize());
+        assertEquals(expected.getSort(), actual.getSort());
+        assertEquals(expected.getOrder(), actual.getOrder());
+        assertEquals(expected.getLastKey(), actual.getLastKey());
+        assertFalse(actual.isFirst());
+    }
+
+    private static void assertMalformed(String token) {
+        try {
+            PageCursor.decode(token);
+        } catch (IllegalArgumentException e) {
+            return;
+        }
+        throw new AssertionError("Expected '" + token + "' to be rejected");
+    }
+}
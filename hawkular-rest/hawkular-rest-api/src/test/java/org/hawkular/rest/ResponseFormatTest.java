@@ -0,0 +1,145 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rest;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/**
+ * The writers of the formats are cached without locking, many threads using them with different mappers have to
+ * keep getting the writer of the mapper they pass.
+ *
+ * @author agent
+ */
+public class ResponseFormatTest {
+
+    private static final int THREADS = 8;
+    private static final int ITERATIONS = 5000;
+
+    // the two mappers write the same map differently, a writer of the other mapper would show
+    private final ObjectMapper inserted = new ObjectMapper();
+    private final ObjectMapper sorted = new ObjectMapper().enable(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS);
+    private final List<ObjectMapper> mappers = Arrays.asList(inserted, sorted);
+
+    @Test
+    public void writerUnderConcurrentUse() throws Exception {
+        Map<String, Object> value = value(0);
+        ResponseFormat[] formats = ResponseFormat.values();
+        // [format][mapper][pretty], written by a single thread
+        byte[][][][] expected = new byte[formats.length][mappers.size()][2][];
+        for (ResponseFormat format : formats) {
+            for (int m = 0; m < mappers.size(); m++) {
+                for (int p = 0; p < 2; p++) {
+                    expected[format.ordinal()][m][p] = format.writer(mappers.get(m), p == 1).writeValueAsBytes(value);
+                }
+            }
+        }
+        assertFalse(Arrays.equals(expected[ResponseFormat.JSON.ordinal()][0][0],
+                expected[ResponseFormat.JSON.ordinal()][1][0]));
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < ITERATIONS; i++) {
+                ResponseFormat format = formats[random.nextInt(formats.length)];
+                int m = random.nextInt(mappers.size());
+                int p = random.nextInt(2);
+                assertArrayEquals(format + ", mapper " + m + ", pretty " + p, expected[format.ordinal()][m][p],
+                        format.writer(mappers.get(m), p == 1).writeValueAsBytes(value));
+            }
+            return null;
+        });
+    }
+
+    @Test
+    public void writeUnderConcurrentUse() throws Exception {
+        List<Map<String, Object>> elements = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            elements.add(value(i));
+        }
+        ResponseFormat[] formats = ResponseFormat.values();
+        byte[][][] expected = new byte[formats.length][mappers.size()][];
+        for (ResponseFormat format : formats) {
+            for (int m = 0; m < mappers.size(); m++) {
+                expected[format.ordinal()][m] = write(format, mappers.get(m), elements);
+            }
+        }
+
+        runConcurrently(() -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < ITERATIONS / 10; i++) {
+                ResponseFormat format = formats[random.nextInt(formats.length)];
+                int m = random.nextInt(mappers.size());
+                assertArrayEquals(format + ", mapper " + m, expected[format.ordinal()][m],
+                        write(format, mappers.get(m), elements));
+            }
+            return null;
+        });
+    }
+
+    private static Map<String, Object> value(int i) {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("url", "http://www.hawkular.org/" + i);
+        value.put("id", "f10462c532a64dff46f0d49974247e76");
+        value.put("status", 201);
+        return value;
+    }
+
+    private static byte[] write(ResponseFormat format, ObjectMapper mapper, List<?> elements) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        format.write(elements, format.writer(mapper, false), output, 10);
+        return output.toByteArray();
+    }
+
+    private static void runConcurrently(Callable<Void> task) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> results = new ArrayList<>(THREADS);
+            for (int t = 0; t < THREADS; t++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            for (Future<Void> result : results) {
+                result.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.benchmarks;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.rx.cdi.JacksonConfig;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.commands.hawkular.CreateUrlCommand;
+import org.hawkular.rx.commands.hawkular.DeleteUrlCommand;
+import org.hawkular.rx.commands.hawkular.GetUrlCommand;
+import org.hawkular.rx.commands.hawkular.UrlCommands;
+import org.hawkular.rx.commands.hawkular.UrlIds;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The cost of creating a command through the typed factories, per command. The factory is wired once, as CDI does
+ * when it is injected, the commands are only created, not executed, so no client is needed.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandConstructionBenchmark {
+
+    private UrlCommands urlCommands;
+
+    @Setup
+    public void setup() throws ReflectiveOperationException {
+        urlCommands = new UrlCommands();
+        inject(urlCommands, "mapper", new JacksonConfig().getCompactMapper());
+        inject(urlCommands, "config", new HawkularConfiguration());
+        inject(urlCommands, "idGenerator", UrlIds.of(UrlIds.MD5));
+        inject(urlCommands, "inventoryCommands", new InventoryCommands());
+    }
+
+    private static void inject(Object bean, String name, Object value) throws ReflectiveOperationException {
+        Field field = bean.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(bean, value);
+    }
+
+    @Benchmark
+    public GetUrlCommand getUrl() {
+        return urlCommands.getUrl("c984d06aafbecf6bc55569f964148ea3", "Basic amRvZTpwYXNzd29yZA==", "hawkular");
+    }
+
+    @Benchmark
+    public CreateUrlCommand createUrl() {
+        return urlCommands.createUrl("www.example.com", "Basic amRvZTpwYXNzd29yZA==", "hawkular");
+    }
+
+    @Benchmark
+    public DeleteUrlCommand deleteUrl() {
+        return urlCommands.deleteUrl("c984d06aafbecf6bc55569f964148ea3", "Basic amRvZTpwYXNzd29yZA==", "hawkular");
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.benchmarks;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.rx.cdi.JacksonConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Compares the {@link JacksonConfig} mappers on a list of URL resource blueprints, as the URL commands send them to
+ * inventory: the human-facing one (indented, lenient parsing), the compact one, and the compact one with Afterburner,
+ * i.e. with <code>hawkular-services.jackson.afterburner=true</code>. Run it without that property, it would give the
+ * compact flavor Afterburner too.
+ *
+ * @author agent
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectMapperBenchmark {
+
+    @Param({"pretty", "compact", "afterburner"})
+    public String flavor;
+
+    @Param({"1", "100"})
+    public int resources;
+
+    private ObjectMapper mapper;
+
+    private List<Resource.Blueprint> blueprints;
+
+    private String json;
+
+    @Setup
+    public void setup() throws IOException {
+        mapper = new ObjectMapper();
+        switch (flavor) {
+            case "pretty":
+                JacksonConfig.initializeObjectMapper(mapper);
+                break;
+            case "compact":
+                JacksonConfig.initializeCompactObjectMapper(mapper);
+                break;
+            case "afterburner":
+                JacksonConfig.initializeCompactObjectMapper(mapper);
+                mapper.registerModule(new AfterburnerModule());
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown mapper flavor " + flavor);
+        }
+
+        String resourceType = CanonicalPath.of().tenant("hawkular").resourceType("URL").get().toString();
+        blueprints = new ArrayList<>(resources);
+        for (int i = 0; i < resources; i++) {
+            String url = "http://www.example" + i + ".com/index.html";
+            blueprints.add(Resource.Blueprint.builder()
+                    .withId(Integer.toHexString(url.hashCode()))
+                    .withResourceTypePath(resourceType)
+                    .withProperty("url", url)
+                    .withProperty("hwk-gui-domainSort", "com.example" + i)
+                    .build());
+        }
+        json = mapper.writeValueAsString(blueprints);
+    }
+
+    @Benchmark
+    public String serialize() throws IOException {
+        return mapper.writeValueAsString(blueprints);
+    }
+
+    @Benchmark
+    public Resource.Blueprint[] deserialize() throws IOException {
+        return mapper.readValue(json, Resource.Blueprint[].class);
+    }
+}
@@ -1,30 +0,0 @@
-/*
- * Copyright 2016 Red Hat, Inc. and/or its affiliates
- * and other contributors as indicated by the @author tags.
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *    http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package org.hawkular.rx.cdi;
-
-import javax.enterprise.util.AnnotationLiteral;
-
-/**
- * @author Jirka Kremser
- */
-public class CreateCommandLiteral extends AnnotationLiteral<CreateCommand> implements CreateCommand {
-    private static final CreateCommandLiteral INSTANCE = new CreateCommandLiteral();
-
-    public static CreateCommandLiteral get() {
-        return INSTANCE;
-    }
-}
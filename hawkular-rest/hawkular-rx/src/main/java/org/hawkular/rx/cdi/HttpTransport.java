@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
  * and other contributors as indicated by the @author tags.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -26,18 +26,17 @@ import java.lang.annotation.Documented;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
-import javax.enterprise.util.Nonbinding;
 import javax.inject.Qualifier;
 
 /**
- * @author Jirka Kremser
+ * Qualifies the {@link org.hawkular.rx.httpclient.HttpClient} that always goes over the network. The default client
+ * calls the co-located inventory in-process when it can, see {@link org.hawkular.rx.httpclient.InProcessClient}.
+ *
+ * @author agent
  */
 @Qualifier
 @Target({TYPE, METHOD, PARAMETER, FIELD})
 @Retention(RUNTIME)
 @Documented
-public @interface WithValues {
-
-    @Nonbinding String[] values() default {};
-
+public @interface HttpTransport {
 }
@@ -18,19 +18,33 @@ package org.hawkular.rx.cdi;
 
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.UriInfo;
 import javax.ws.rs.ext.ContextResolver;
 import javax.ws.rs.ext.Provider;
 
 import org.hawkular.inventory.json.InventoryJacksonConfig;
 import org.hawkular.inventory.paths.CanonicalPath;
 import org.hawkular.inventory.paths.RelativePath;
+import org.jboss.resteasy.spi.ResteasyProviderFactory;
 
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
 
 /**
+ * Configures the {@link ObjectMapper}s. There are two flavors:
+ * <ul>
+ *     <li>compact and strict for the internal calls (see {@link Compact}) - no indentation, standard JSON only</li>
+ *     <li>human-facing (see {@link Pretty}) - indented output, accepts single quotes and unquoted field names</li>
+ * </ul>
+ * The REST API reads the requests leniently and responds compactly, unless the request has the <code>pretty=true</code>
+ * query parameter.
+ * <p>
+ * Setting the <code>hawkular-services.jackson.afterburner</code> system property to true registers the Afterburner
+ * module with the compact mappers, which replaces the reflective (de)serialization with generated bytecode.
+ *
  * @author Jirka Kremser
  * @since 0.1.0
  */
@@ -38,12 +52,23 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 @Produces(MediaType.APPLICATION_JSON)
 public class JacksonConfig implements ContextResolver<ObjectMapper> {
 
-    private ObjectMapper mapper;
+    private static final boolean AFTERBURNER = Boolean.getBoolean("hawkular-services.jackson.afterburner");
 
+    private final ObjectMapper compactMapper;
+    private final ObjectMapper restMapper;
+    private final ObjectMapper prettyMapper;
 
     public JacksonConfig() {
-        this.mapper = new ObjectMapper();
-        initializeObjectMapper(this.mapper);
+        this.compactMapper = new ObjectMapper();
+        initializeCompactObjectMapper(this.compactMapper);
+
+        this.prettyMapper = new ObjectMapper();
+        initializeObjectMapper(this.prettyMapper);
+
+        this.restMapper = new ObjectMapper();
+        initializeObjectMapper(this.restMapper);
+        this.restMapper.disable(SerializationFeature.INDENT_OUTPUT);
+        registerAfterburner(this.restMapper);
 
 //        SimpleModule relationshipModule = new SimpleModule("RelationshipModule",
 //                new Version(0, 1, 0, null, "org.hawkular.inventory",
@@ -54,13 +79,27 @@ public class JacksonConfig implements ContextResolver<ObjectMapper> {
 //        this.mapper.registerModule(relationshipModule);
     }
 
+    /**
+     * Configures the human-facing mapper: indented output and lenient parsing.
+     */
     public static void initializeObjectMapper(ObjectMapper mapper) {
+        initializeCommon(mapper);
         mapper.enable(SerializationFeature.INDENT_OUTPUT);
-        mapper.disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
-        mapper.disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS);
-        mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         mapper.enable(JsonParser.Feature.ALLOW_SINGLE_QUOTES);
         mapper.enable(JsonParser.Feature.ALLOW_UNQUOTED_FIELD_NAMES);
+    }
+
+    /**
+     * Configures the mapper for the internal calls: compact output and standard JSON parsing.
+     */
+    public static void initializeCompactObjectMapper(ObjectMapper mapper) {
+        initializeCommon(mapper);
+        registerAfterburner(mapper);
+    }
+
+    private static void initializeCommon(ObjectMapper mapper) {
+        mapper.disable(SerializationFeature.WRITE_NULL_MAP_VALUES);
+        mapper.disable(SerializationFeature.WRITE_EMPTY_JSON_ARRAYS);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_EMPTY);
         mapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
 
@@ -70,7 +109,30 @@ public class JacksonConfig implements ContextResolver<ObjectMapper> {
         mapper.addMixIn(RelativePath.class, PathSerializationMixin.class);
     }
 
+    private static void registerAfterburner(ObjectMapper mapper) {
+        if (AFTERBURNER) {
+            mapper.registerModule(new AfterburnerModule());
+        }
+    }
+
+    public ObjectMapper getCompactMapper() {
+        return compactMapper;
+    }
+
+    public ObjectMapper getPrettyMapper() {
+        return prettyMapper;
+    }
+
     @Override public ObjectMapper getContext(Class<?> type) {
-        return mapper;
+        return isPrettyRequested() ? prettyMapper : restMapper;
+    }
+
+    /**
+     * @return true if the current REST request asks for an indented response with the <code>pretty=true</code> query
+     * parameter
+     */
+    public static boolean isPrettyRequested() {
+        UriInfo uriInfo = ResteasyProviderFactory.getContextData(UriInfo.class);
+        return uriInfo != null && Boolean.parseBoolean(uriInfo.getQueryParameters().getFirst("pretty"));
     }
 }
@@ -27,12 +27,20 @@ import com.fasterxml.jackson.databind.ObjectMapper;
  */
 public class ObjectMapperProvider {
 
-    private final JacksonConfig config = new JacksonConfig();
+    // the provider is dependent, the mappers are expensive to create and thread-safe, so they are shared
+    private static final JacksonConfig CONFIG = new JacksonConfig();
 
     @Produces
     @Default
+    @Compact
     public ObjectMapper getDefaultObjectMapper() {
-        return config.getContext(ObjectMapper.class);
+        return CONFIG.getCompactMapper();
+    }
+
+    @Produces
+    @Pretty
+    public ObjectMapper getPrettyObjectMapper() {
+        return CONFIG.getPrettyMapper();
     }
 
 //    @Produces
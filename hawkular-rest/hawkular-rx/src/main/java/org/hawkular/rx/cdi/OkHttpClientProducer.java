@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.cdi;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+
+import org.hawkular.rx.commands.common.CommandLogger;
+
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+/**
+ * Owns the {@link OkHttpClient} shared by all the {@link org.hawkular.rx.httpclient.OkClient}s, i.e. one connection
+ * pool and one dispatcher, and releases their threads and connections when the application is undeployed. The
+ * following system properties can be defined to tune them:
+ * <pre>
+ * hawkular-services.http-client.max-idle-connections  idle connections kept in the pool, default 20
+ * hawkular-services.http-client.keep-alive-secs       how long an idle connection is kept, default 300
+ * hawkular-services.http-client.max-requests          max concurrent async requests, default 128
+ * hawkular-services.http-client.max-requests-per-host max concurrent async requests per host, default 64
+ * hawkular-services.http-client.connect-timeout-ms    default 5000
+ * hawkular-services.http-client.read-timeout-ms       default 30000
+ * hawkular-services.http-client.h2c                   talk cleartext HTTP/2 with prior knowledge, meant for the
+ *                                                     co-located inventory and metrics, default false
+ * </pre>
+ *
+ * @author agent
+ */
+@ApplicationScoped
+public class OkHttpClientProducer {
+
+    private static final String PROP_PREFIX = "hawkular-services.http-client.";
+
+    private OkHttpClient client;
+
+    @PostConstruct
+    void init() {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(Integer.getInteger(PROP_PREFIX + "max-requests", 128));
+        dispatcher.setMaxRequestsPerHost(Integer.getInteger(PROP_PREFIX + "max-requests-per-host", 64));
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(Integer.getInteger(PROP_PREFIX + "max-idle-connections", 20),
+                        Long.getLong(PROP_PREFIX + "keep-alive-secs", 300L), TimeUnit.SECONDS))
+                .connectTimeout(Long.getLong(PROP_PREFIX + "connect-timeout-ms", 5000L), TimeUnit.MILLISECONDS)
+                .readTimeout(Long.getLong(PROP_PREFIX + "read-timeout-ms", 30000L), TimeUnit.MILLISECONDS);
+
+        if (Boolean.getBoolean(PROP_PREFIX + "h2c")) {
+            try {
+                // looked up by name, the constant only exists in the newer OkHttp versions
+                builder.protocols(Collections.singletonList(Protocol.get("h2_prior_knowledge")));
+            } catch (IOException e) {
+                CommandLogger.LOGGER.warnf("Property [%sh2c] is set, but this OkHttp version doesn't support " +
+                        "HTTP/2 with prior knowledge, using HTTP/1.1: %s", PROP_PREFIX, e.getMessage());
+            }
+        }
+        client = builder.build();
+    }
+
+    @Produces
+    @HttpTransport
+    public OkHttpClient getClient() {
+        return client;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
  * and other contributors as indicated by the @author tags.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -29,16 +29,14 @@ import java.lang.annotation.Target;
 import javax.inject.Qualifier;
 
 /**
- * @author Jirka Kremser
+ * Qualifies the human-facing {@link com.fasterxml.jackson.databind.ObjectMapper} that indents its output and accepts
+ * relaxed JSON, see {@link JacksonConfig#initializeObjectMapper(com.fasterxml.jackson.databind.ObjectMapper)}.
+ *
+ * @author agent
  */
 @Qualifier
 @Target({TYPE, METHOD, PARAMETER, FIELD})
 @Retention(RUNTIME)
 @Documented
-/**
- * Use this annotation only if there is an ambiguity
- * (often the update commands extends the create commands)
- */
-public @interface CreateCommand {
-
+public @interface Pretty {
 }
@@ -16,31 +16,28 @@
  */
 package org.hawkular.rx.cdi;
 
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-
 import javax.enterprise.inject.Produces;
 import javax.inject.Singleton;
 
+import org.hawkular.rx.commands.hawkular.UrlIdGenerator;
+import org.hawkular.rx.commands.hawkular.UrlIds;
+
 /**
- * @author Jirka Kremser
+ * Produces the generator of the URL resource ids, the algorithm is taken from the
+ * <code>hawkular-services.rx.url-id.algorithm</code> system property: <code>MD5</code> (the default), any other
+ * {@link java.security.MessageDigest} algorithm or <code>murmur3-128</code>. Changing it changes the ids of the URLs
+ * created from then on, so the already stored URLs won't be found by their new ids.
+ *
+ * @author agent
  */
 @Singleton
-public class MessageDigestProvider {
+public class UrlIdGeneratorProvider {
 
-    private MessageDigest md5;
+    private final UrlIdGenerator generator =
+            UrlIds.of(System.getProperty("hawkular-services.rx.url-id.algorithm", UrlIds.MD5));
 
     @Produces
-    public MessageDigest getMD5() {
-        if (md5 == null) {
-            try {
-                this.md5 = MessageDigest.getInstance("MD5");
-            } catch (NoSuchAlgorithmException e) {
-                e.printStackTrace();
-            }
-        }
-        return md5;
+    public UrlIdGenerator getUrlIdGenerator() {
+        return generator;
     }
-
-
 }
@@ -56,4 +56,8 @@ public interface CommandLogger extends BasicLogger {
     @LogMessage(level = Logger.Level.DEBUG)
     @Message(id = 5754, value = "Accepting:\nHTTP %s -> %s\n\nheaders:\n%s\npayload:\n%s\njavaMethod: %s\n")
     void restCall(String method, String url, String headers, String jsonPayload, String javaMethod);
-}
\ No newline at end of file
+
+    @LogMessage(level = Logger.Level.WARN)
+    @Message(id = 5755, value = "Could not remove the partially created URL resource [%s], it has to be deleted " +
+            "manually") void compensationFailed(String resourceId, @Cause Throwable cause);
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.common;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.configuration.AbstractConfiguration;
+
+import com.netflix.config.ConfigurationManager;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+import com.netflix.hystrix.HystrixCommandProperties;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+import com.netflix.hystrix.HystrixObservableCommand;
+
+/**
+ * Creates the Hystrix setters of the commands from system properties, so that each dependency (group) gets its own
+ * isolation, e.g. a slow inventory doesn't starve the URL commands. A value is looked up as
+ * <code>hawkular-services.rx.command.&lt;command key&gt;.&lt;name&gt;</code>, then
+ * <code>hawkular-services.rx.command.&lt;group key&gt;.&lt;name&gt;</code>, then
+ * <code>hawkular-services.rx.command.default.&lt;name&gt;</code>:
+ * <pre>
+ * isolation                         THREAD or SEMAPHORE, default THREAD except for the commands that only
+ *                                   compose async client calls (SEMAPHORE, they don't block the caller)
+ * timeout-ms                        default 1000, as in Hystrix
+ * max-concurrent                    semaphore permits, also used for the fallback, default 64
+ * circuit-breaker.request-volume    requests in the window before the breaker may trip, default 20
+ * circuit-breaker.error-percent     default 50
+ * circuit-breaker.sleep-window-ms   default 5000
+ * </pre>
+ * The thread pool is shared by the group, these are looked up by the group key, then <code>default</code>:
+ * <pre>
+ * core-size                         default 10
+ * queue-size                        default 50, -1 hands off directly to the threads
+ * </pre>
+ * The <code>hystrix.*</code> properties set directly in Archaius take precedence over the pool ones.
+ *
+ * @author agent
+ */
+public final class CommandSetters {
+
+    private static final String PREFIX = "hawkular-services.rx.command.";
+
+    private static final Set<String> CONFIGURED_POOLS = ConcurrentHashMap.newKeySet();
+
+    private CommandSetters() {
+    }
+
+    public static HystrixObservableCommand.Setter forCommand(String group, String command) {
+        return forCommand(group, command, ExecutionIsolationStrategy.THREAD);
+    }
+
+    /**
+     * @param defaultIsolation the isolation used unless configured otherwise, SEMAPHORE for the commands that don't
+     *                         block
+     */
+    public static HystrixObservableCommand.Setter forCommand(String group, String command,
+                                                             ExecutionIsolationStrategy defaultIsolation) {
+        return HystrixObservableCommand.Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey(group))
+                .andCommandKey(HystrixCommandKey.Factory.asKey(command))
+                .andCommandPropertiesDefaults(commandProperties(group, command, defaultIsolation));
+    }
+
+    /**
+     * @return the properties for the given command, the group's thread pool gets configured as a side effect
+     */
+    public static HystrixCommandProperties.Setter commandProperties(String group, String command) {
+        return commandProperties(group, command, ExecutionIsolationStrategy.THREAD);
+    }
+
+    private static HystrixCommandProperties.Setter commandProperties(String group, String command,
+                                                                     ExecutionIsolationStrategy defaultIsolation) {
+        configurePool(group);
+        int maxConcurrent = getInt(group, command, "max-concurrent", 64);
+        return HystrixCommandProperties.Setter()
+                .withExecutionIsolationStrategy(getIsolation(group, command, defaultIsolation))
+                .withExecutionTimeoutInMilliseconds(getInt(group, command, "timeout-ms", 1000))
+                .withExecutionIsolationSemaphoreMaxConcurrentRequests(maxConcurrent)
+                .withFallbackIsolationSemaphoreMaxConcurrentRequests(maxConcurrent)
+                .withCircuitBreakerRequestVolumeThreshold(getInt(group, command, "circuit-breaker.request-volume", 20))
+                .withCircuitBreakerErrorThresholdPercentage(getInt(group, command, "circuit-breaker.error-percent", 50))
+                .withCircuitBreakerSleepWindowInMilliseconds(
+                        getInt(group, command, "circuit-breaker.sleep-window-ms", 5000));
+    }
+
+    private static void configurePool(String group) {
+        if (!CONFIGURED_POOLS.add(group)) {
+            return;
+        }
+        // the observable commands can't be given the thread pool defaults in their setter, only through Archaius,
+        // the thread pool key is the group key
+        AbstractConfiguration config = ConfigurationManager.getConfigInstance();
+        int queueSize = getInt(group, null, "queue-size", 50);
+        setIfAbsent(config, "hystrix.threadpool." + group + ".coreSize", getInt(group, null, "core-size", 10));
+        setIfAbsent(config, "hystrix.threadpool." + group + ".maxQueueSize", queueSize);
+        setIfAbsent(config, "hystrix.threadpool." + group + ".queueSizeRejectionThreshold", Math.max(queueSize, 1));
+    }
+
+    private static void setIfAbsent(AbstractConfiguration config, String key, int value) {
+        if (!config.containsKey(key)) {
+            config.setProperty(key, value);
+        }
+    }
+
+    private static String get(String group, String command, String name, String defaultValue) {
+        String value = command == null ? null : System.getProperty(PREFIX + command + '.' + name);
+        if (value == null) {
+            value = System.getProperty(PREFIX + group + '.' + name);
+        }
+        return value != null ? value : System.getProperty(PREFIX + "default." + name, defaultValue);
+    }
+
+    private static int getInt(String group, String command, String name, int defaultValue) {
+        String value = get(group, command, name, null);
+        try {
+            return value == null ? defaultValue : Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            CommandLogger.LOGGER.warnf("Invalid value [%s] of [%s] for the command [%s], using %d", value, name,
+                    command == null ? group : command, defaultValue);
+            return defaultValue;
+        }
+    }
+
+    private static ExecutionIsolationStrategy getIsolation(String group, String command,
+                                                           ExecutionIsolationStrategy defaultValue) {
+        String value = get(group, command, "isolation", null);
+        try {
+            return value == null ? defaultValue : ExecutionIsolationStrategy.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            CommandLogger.LOGGER.warnf("Invalid value [%s] of [isolation] for the command [%s], using %s", value,
+                    command, defaultValue);
+            return defaultValue;
+        }
+    }
+}
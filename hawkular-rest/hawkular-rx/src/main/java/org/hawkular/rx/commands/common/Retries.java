@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.common;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hawkular.rx.httpclient.UnexpectedStatusException;
+
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Retries of idempotent requests, to be passed to {@link Observable#retryWhen(Func1)} of an observable that sends the
+ * request again on every subscription. Only the transient failures are retried, see {@link #isTransient(Throwable)}.
+ * The delay before the n-th retry is random between 0 and <code>min(maxDelayMs, baseDelayMs * 2^(n-1))</code>, so
+ * that the requests failed by the same outage don't come back all at once.
+ *
+ * @author agent
+ */
+public final class Retries {
+
+    private Retries() {
+    }
+
+    /**
+     * @param maxRetries  the number of retries after the first attempt, the last failure is propagated
+     * @param baseDelayMs the upper bound of the delay before the first retry, doubled for each next one
+     * @param maxDelayMs  the cap of the upper bound of the delay
+     */
+    public static Func1<Observable<? extends Throwable>, Observable<?>> withBackoff(int maxRetries, long baseDelayMs,
+                                                                                  long maxDelayMs) {
+        return (failures) -> {
+            AtomicInteger retries = new AtomicInteger();
+            return failures.flatMap(failure -> {
+                int retry = retries.incrementAndGet();
+                if (retry > maxRetries || !isTransient(failure)) {
+                    return Observable.<Long>error(failure);
+                }
+                long bound = Math.min(maxDelayMs, baseDelayMs << Math.min(retry - 1, 30));
+                return Observable.timer(ThreadLocalRandom.current().nextLong(bound + 1), TimeUnit.MILLISECONDS);
+            });
+        };
+    }
+
+    /**
+     * @return true if the failure or any of its causes is an I/O error or a transient
+     * {@link UnexpectedStatusException}
+     */
+    public static boolean isTransient(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause() == t ? null : t.getCause()) {
+            if (t instanceof IOException) {
+                return true;
+            }
+            if (t instanceof UnexpectedStatusException) {
+                return ((UnexpectedStatusException) t).isTransient();
+            }
+        }
+        return false;
+    }
+}
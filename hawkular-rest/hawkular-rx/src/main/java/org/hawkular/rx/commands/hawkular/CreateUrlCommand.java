@@ -16,149 +16,293 @@
  */
 package org.hawkular.rx.commands.hawkular;
 
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.security.MessageDigest;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
+import java.util.Map;
 
 import org.apache.commons.lang.StringUtils;
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hawkular.inventory.api.model.Metric;
 import org.hawkular.inventory.api.model.Resource;
 import org.hawkular.inventory.paths.CanonicalPath;
-import org.hawkular.rx.cdi.CreateCommand;
-import org.hawkular.rx.cdi.Initialized;
-import org.hawkular.rx.cdi.WithValues;
+import org.hawkular.inventory.paths.SegmentType;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandLogger;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
-import org.hawkular.rx.commands.inventory.CreateMetricCommand;
-import org.hawkular.rx.commands.inventory.CreateResourceCommand;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
 import org.hawkular.rx.httpclient.HttpClient;
+import org.hawkular.rx.httpclient.RestResponse;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
 
 import rx.Observable;
-import rx.Subscriber;
 
 /**
+ * Creates the URL resource and its two metrics with one bulk request to inventory, there's no thread blocked while
+ * waiting for it. If a part of the bulk fails, the created resource (and so its metrics) is deleted before the command
+ * fails. Inventory deployments without the bulk endpoint are served by creating the entities one by one, with the same
+ * compensation, once inventory answered that the endpoint is missing the bulk request is not sent anymore.
+ *
  * @author Jirka Kremser
  */
-@WithValues
-@CreateCommand
 public class CreateUrlCommand extends AbstractHttpCommand<String> {
 
-    protected String url;
+    private static final Setter SETTER =
+            CommandSetters.forCommand("URL", "CreateUrlCommand", ExecutionIsolationStrategy.SEMAPHORE);
 
-    protected String authToken;
+    /**
+     * Set once inventory answered that it has no bulk endpoint, see {@link #isBulkEndpointMissing(ObjectMapper,
+     * RestResponse)}, so that the following URLs don't probe it again.
+     */
+    private static volatile boolean bulkEndpointMissing;
 
-    protected String persona;
+    protected final HttpClient client;
 
-    @Inject
-    protected HttpClient client;
+    protected final ObjectMapper mapper;
 
-    @Inject
-    @Any
-    protected ObjectMapper mapper;
+    protected final InventoryCommands inventoryCommands;
 
-    @Inject
-    private MessageDigest md5;
+    private final UrlIdGenerator idGenerator;
 
-    @Inject
-    protected HawkularConfiguration config;
+    protected final String url;
 
-    @Inject
-    @Any
-    private Instance<CreateResourceCommand> createResourceCommandInjector;
+    protected final String authToken;
 
-    @Inject
-    @Any
-    private Instance<CreateMetricCommand> createMetricCommandInjector;
+    protected final String persona;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> CreateUrlCommand.this.url = makeUrlWithProtocol(nullOrStr(x))),
-                new ImmutablePair<>(String.class, (x) -> CreateUrlCommand.this.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> CreateUrlCommand.this.persona = nullOrStr(x))
-        );
+    CreateUrlCommand(HttpClient client, ObjectMapper mapper, InventoryCommands inventoryCommands,
+                     UrlIdGenerator idGenerator, String url, String authToken, String persona) {
+        this(SETTER, client, mapper, inventoryCommands, idGenerator, url, authToken, persona);
     }
 
-    @Inject
-    protected CreateUrlCommand(InjectionPoint ip) {
-        super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("URL")));
-        initialize(ip);
+    protected CreateUrlCommand(Setter setter, HttpClient client, ObjectMapper mapper,
+                               InventoryCommands inventoryCommands, UrlIdGenerator idGenerator, String url,
+                               String authToken, String persona) {
+        super(setter);
+        this.client = client;
+        this.mapper = mapper;
+        this.inventoryCommands = inventoryCommands;
+        this.idGenerator = idGenerator;
+        this.url = makeUrlWithProtocol(url);
+        this.authToken = authToken;
+        this.persona = persona;
     }
 
+    /**
+     * @return the observable of the location of the created resource, or <code>null</code> if it already exists
+     */
     @Override protected Observable<String> construct() {
-        return Observable.create(new Observable.OnSubscribe<String>() {
-            @Override
-            public void call(Subscriber<? super String> observer) {
-                try {
-                    if (observer.isUnsubscribed()) {
-                        return;
-                    }
-                    CreateResourceCommand createResourceCmd =
-                            createResourceCommandInjector.select(Initialized.withValues(authToken, persona)).get();
-
-
-                    String hashedUrl = md5Hash(url);
-                    Resource.Blueprint urlBlueprint = Resource.Blueprint.builder()
-                            .withId(hashedUrl)
-                            .withResourceTypePath(CanonicalPath.of().tenant(persona)
-                                    .resourceType("URL").get().toString())
-                            .withProperty("url", url)
-                            .withProperty("hwk-gui-domainSort", getDomainSorterUrl(url))
-                            .build();
-                    createResourceCmd.setResource(urlBlueprint);
-                    Observable<String> observeResource = createResourceCmd.toObservable();
-
-                    Metric.Blueprint metric1 = Metric.Blueprint.builder()
-                            .withId(hashedUrl + ".status.duration")
-                            .withMetricTypePath(CanonicalPath.of().tenant(persona)
-                                    .metricType("status.duration.type").get().toString())
-                            .build();
-                    CreateMetricCommand metric1Cmd =
-                            createMetricCommandInjector.select(Initialized.withValues(authToken, persona)).get();
-                    metric1Cmd.setResourcePath(hashedUrl);
-                    metric1Cmd.setMetric(metric1);
-                    Metric.Blueprint metric2 = Metric.Blueprint.builder()
-                            .withId(hashedUrl + ".status.code")
-                            .withMetricTypePath(CanonicalPath.of().tenant(persona)
-                                    .metricType("status.code.type").get().toString())
-                            .build();
-                    CreateMetricCommand metric2Cmd =
-                            createMetricCommandInjector.select(Initialized.withValues(authToken, persona)).get();
-                    metric2Cmd.setResourcePath(hashedUrl);
-                    metric2Cmd.setMetric(metric2);
-
-                    Observable<String> observeMetric1 = metric1Cmd.toObservable();
-                    Observable<String> observeMetric2 = metric2Cmd.toObservable();
-
-                    observeResource.concatWith(observeMetric1.mergeWith(observeMetric2)).buffer(3)
-                            .doOnError(e -> {
-                                System.err.println(e);
-                                observer.onError(e);
-                            }).subscribe((commandResponse) -> {
-                                observer.onNext(commandResponse.get(0));
-                                observer.onCompleted();
+        return Observable.defer(() -> {
+            String hashedUrl = idGenerator.generate(url);
+            Resource.Blueprint urlBlueprint = urlBlueprint(persona, hashedUrl, url);
+            List<Metric.Blueprint> metrics = metricBlueprints(persona, hashedUrl);
+            Metric.Blueprint metric1 = metrics.get(0);
+            Metric.Blueprint metric2 = metrics.get(1);
+
+            if (bulkEndpointMissing) {
+                return createOneByOne(hashedUrl, urlBlueprint, metric1, metric2);
+            }
+
+            CanonicalPath tenantPath = CanonicalPath.of().tenant(persona).get();
+            CanonicalPath resourcePath = tenantPath.extend(SegmentType.r, hashedUrl).get();
+            // the parents come first, inventory creates the resource before its metrics
+            Map<String, Map<String, List<?>>> bulk = new LinkedHashMap<>();
+            bulk.put(tenantPath.toString(), Collections.singletonMap("resource", Collections.singletonList(
+                    urlBlueprint)));
+            bulk.put(resourcePath.toString(), Collections.singletonMap("metric", metrics));
+
+            String json;
+            try {
+                json = mapper.writeValueAsString(bulk);
+            } catch (JsonProcessingException e) {
+                return Observable.error(e);
+            }
+            return HttpClient.observe(client.postAsync(authToken, persona, HawkularConfiguration.URL_INVENTORY +
+                    "/bulk", json)).flatMap(response -> {
+                        try {
+                            if (isBulkEndpointMissing(mapper, response)) {
+                                markBulkEndpointMissing();
+                                return createOneByOne(hashedUrl, urlBlueprint, metric1, metric2);
+                            }
+                            return bulkResult(response, hashedUrl, resourcePath.toString());
+                        } catch (IOException e) {
+                            return Observable.error(e);
+                        }
                     });
+        });
+    }
+
+    static boolean isBulkSupported() {
+        return !bulkEndpointMissing;
+    }
+
+    static void markBulkEndpointMissing() {
+        bulkEndpointMissing = true;
+    }
+
+    /**
+     * Tells a missing bulk endpoint from a failed bulk request: inventory answers 405, or 404 without a body, if it
+     * has no such endpoint, while a 404 about the entities, e.g. the tenant doesn't exist, carries its error body.
+     */
+    static boolean isBulkEndpointMissing(ObjectMapper mapper, RestResponse response) throws IOException {
+        if (response.getStatus() == 405) {
+            return true;
+        }
+        if (response.getStatus() != 404) {
+            return false;
+        }
+        String body = response.getBody();
+        if (body == null || body.trim().isEmpty()) {
+            return true;
+        }
+        try {
+            JsonNode error = mapper.readTree(body);
+            return error == null || !error.isObject() || !error.has("errorMsg");
+        } catch (JsonProcessingException e) {
+            // e.g. the HTML error page of the container
+            return true;
+        }
+    }
+
+    /**
+     * @param url the URL with the protocol, see {@link #makeUrlWithProtocol(String)}
+     */
+    static Resource.Blueprint urlBlueprint(String persona, String hashedUrl, String url) {
+        return Resource.Blueprint.builder()
+                .withId(hashedUrl)
+                .withResourceTypePath(CanonicalPath.of().tenant(persona)
+                        .resourceType("URL").get().toString())
+                .withProperty("url", url)
+                .withProperty("hwk-gui-domainSort", getDomainSorterUrl(url))
+                .build();
+    }
+
+    /**
+     * @return the duration and the status code metrics of the URL, in this order
+     */
+    static List<Metric.Blueprint> metricBlueprints(String persona, String hashedUrl) {
+        Metric.Blueprint duration = Metric.Blueprint.builder()
+                .withId(hashedUrl + ".status.duration")
+                .withMetricTypePath(CanonicalPath.of().tenant(persona)
+                        .metricType("status.duration.type").get().toString())
+                .build();
+        Metric.Blueprint code = Metric.Blueprint.builder()
+                .withId(hashedUrl + ".status.code")
+                .withMetricTypePath(CanonicalPath.of().tenant(persona)
+                        .metricType("status.code.type").get().toString())
+                .build();
+        return Arrays.asList(duration, code);
+    }
 
-//                    observeResource.flatMap((response) -> observeMetrics).subscribe((commandResponse) -> {
-//                        observer.onNext(commandResponse);
-//                    });
-                } catch (Exception e) {
-                    observer.onError(e);
+    /**
+     * @return the location of the URL resource, as inventory answers it to the one by one creation
+     */
+    static String resourceLocation(String hashedUrl) {
+        return HawkularConfiguration.URL_INVENTORY + "/test/resources/" + hashedUrl;
+    }
+
+    /**
+     * Reads the statuses of the entities of a bulk create. The inventory REST api groups them by the element type,
+     * e.g. <code>{"resource": {"/t;tenant/r;id": 201}, "metric": {"/t;tenant/r;id/m;id.status.code": 201}}</code>,
+     * a flat map of the canonical paths to the statuses is accepted too.
+     *
+     * @return the statuses keyed by the canonical paths of the entities
+     * @throws IOException if the body is not a bulk create result
+     */
+    static Map<String, Integer> bulkStatuses(ObjectMapper mapper, String body) throws IOException {
+        JsonNode root = body == null ? null : mapper.readTree(body);
+        if (root == null || !root.isObject()) {
+            throw new IOException("Unexpected inventory bulk create result: " + body);
+        }
+        Map<String, Integer> statuses = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> entries = root.fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            if (entry.getValue().isObject()) {
+                Iterator<Map.Entry<String, JsonNode>> byPath = entry.getValue().fields();
+                while (byPath.hasNext()) {
+                    Map.Entry<String, JsonNode> status = byPath.next();
+                    putStatus(statuses, status.getKey(), status.getValue(), body);
                 }
+            } else {
+                putStatus(statuses, entry.getKey(), entry.getValue(), body);
             }
-        });
+        }
+        return statuses;
+    }
+
+    private static void putStatus(Map<String, Integer> statuses, String path, JsonNode status, String body)
+            throws IOException {
+        if (!status.canConvertToInt()) {
+            throw new IOException("Unexpected inventory bulk create result: " + body);
+        }
+        statuses.put(path, status.asInt());
+    }
+
+    private Observable<String> bulkResult(RestResponse response, String hashedUrl, String resourcePath)
+            throws IOException {
+        if (!response.isSuccessful()) {
+            return Observable.error(new IllegalStateException("Inventory bulk create failed with status "
+                    + response.getStatus() + ": " + response.getBody()));
+        }
+        Map<String, Integer> statuses = bulkStatuses(mapper, response.getBody());
+        Integer resourceStatus = statuses.get(resourcePath);
+        if (resourceStatus != null && resourceStatus == 409) {
+            return Observable.<String>just(null);
+        }
+        boolean resourceCreated = resourceStatus != null && resourceStatus == 201;
+        boolean allCreated = resourceCreated && statuses.size() == 3
+                && statuses.values().stream().allMatch(status -> status == 201);
+        if (allCreated) {
+            return Observable.just(resourceLocation(hashedUrl));
+        }
+        Observable<String> failure = Observable.error(new IllegalStateException("URL " + url + " was not created: "
+                + statuses));
+        return resourceCreated ? compensate(hashedUrl).concatWith(failure) : failure;
+    }
+
+    private Observable<String> createOneByOne(String hashedUrl, Resource.Blueprint urlBlueprint,
+                                              Metric.Blueprint metric1, Metric.Blueprint metric2) {
+        return inventoryCommands.createResource(authToken, persona, urlBlueprint).toObservable()
+                .flatMap(location -> {
+                    if (location == null) {
+                        // already exists, its metrics too
+                        return Observable.<String>just(null);
+                    }
+                    return inventoryCommands.createMetric(authToken, persona, hashedUrl, metric1).toObservable()
+                            .mergeWith(inventoryCommands.createMetric(authToken, persona, hashedUrl, metric2)
+                                    .toObservable())
+                            .toList()
+                            .map(metricLocations -> location)
+                            .onErrorResumeNext(e -> compensate(hashedUrl).concatWith(Observable.error(e)));
+                });
+    }
+
+    /**
+     * Deletes the partially created URL resource, the metrics go with it. The returned observable completes once
+     * the resource is deleted, without a value, a failure to delete it is only logged.
+     */
+    static Observable<String> compensate(InventoryCommands inventoryCommands, String hashedUrl, String authToken,
+                                         String persona) {
+        return inventoryCommands.deleteResource(hashedUrl, authToken, persona).toObservable()
+                .ignoreElements()
+                .onErrorResumeNext(e -> {
+                    CommandLogger.LOGGER.compensationFailed(hashedUrl, e);
+                    return Observable.empty();
+                });
+    }
+
+    private Observable<String> compensate(String hashedUrl) {
+        return compensate(inventoryCommands, hashedUrl, authToken, persona);
     }
 
 //    @Override
@@ -171,19 +315,11 @@ public class CreateUrlCommand extends AbstractHttpCommand<String> {
 //        return Observable.just(url);
 //    }
 
-    private String md5Hash(String input) {
-        byte[] byteData = md5.digest(input.getBytes());
-        StringBuffer sb = new StringBuffer();
-        for (int i = 0; i < byteData.length; i++)
-            sb.append(Integer.toString((byteData[i] & 0xff) + 0x100, 16).substring(1));
-        return sb.toString();
-    }
-
-    protected String makeUrlWithProtocol(String url) {
+    protected static String makeUrlWithProtocol(String url) {
         return url.startsWith("http") ? url : "http://" + url;
     }
 
-    protected String getDomainSorterUrl(String url) {
+    protected static String getDomainSorterUrl(String url) {
         //http://git.io/vRIHB
         try {
             URL urlInstance = new URL(url);
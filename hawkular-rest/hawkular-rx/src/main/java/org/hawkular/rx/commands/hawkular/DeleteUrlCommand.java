@@ -16,128 +16,76 @@
  */
 package org.hawkular.rx.commands.hawkular;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.hawkular.rx.cdi.Initialized;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
-import org.hawkular.rx.commands.inventory.DeleteMetricCommand;
-import org.hawkular.rx.commands.inventory.DeleteResourceCommand;
+import org.hawkular.rx.commands.common.Retries;
 import org.hawkular.rx.httpclient.HttpClient;
+import org.hawkular.rx.httpclient.UnexpectedStatusException;
 
-import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
 
 import rx.Observable;
-import rx.Subscriber;
 
 /**
+ * Deletes the URL resource, its metrics are contained in it and go with it. There's no thread blocked while waiting
+ * for inventory. The delete is idempotent: a resource that is already gone counts as deleted, so the transient
+ * failures are retried (see {@link Retries}) and a repeated delete resumes where a failed one stopped.
+ * <p>
+ * The retries are configured by the <code>hawkular-services.rx.delete-url.*</code> system properties:
+ * <pre>
+ * max-retries           default 3
+ * retry-delay-ms        default 100, the upper bound of the first delay, doubled for each next one
+ * max-retry-delay-ms    default 2000
+ * </pre>
+ * All the attempts have to fit in the timeout of the command.
+ *
  * @author Jirka Kremser
  */
-@WithValues
 public class DeleteUrlCommand extends AbstractHttpCommand<String> {
 
-    protected String urlId;
-
-    protected String authToken;
-
-    protected String persona;
-
-    @Inject
-    protected HttpClient client;
-
-    @Inject
-    protected HawkularConfiguration config;
-
-    @Inject
-    @Any
-    private Instance<DeleteResourceCommand> deleteResourceCommandInjector;
+    private static final String PROP_PREFIX = "hawkular-services.rx.delete-url.";
 
-    @Inject
-    @Any
-    private Instance<DeleteMetricCommand> deleteMetricCommandInjector;
+    private static final int MAX_RETRIES = Integer.getInteger(PROP_PREFIX + "max-retries", 3);
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> DeleteUrlCommand.this.urlId = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> DeleteUrlCommand.this.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> DeleteUrlCommand.this.persona = nullOrStr(x))
-        );
-    }
-
-    @Inject
-    protected DeleteUrlCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("URL"));
-        initialize(ip);
-    }
-
-    @Override protected Observable<String> construct() {
-        return Observable.create(new Observable.OnSubscribe<String>() {
-            @Override
-            public void call(Subscriber<? super String> observer) {
-                if (observer.isUnsubscribed()) {
-                    return;
-                }
-                try {
-                    // todo: deleting the resource itself should be enough (no need to delete the metrics first)
+    private static final long RETRY_DELAY_MS = Long.getLong(PROP_PREFIX + "retry-delay-ms", 100L);
 
-                    final String metric1Id = urlId + ".status.duration";
-                    final String metric2Id = urlId + ".status.code";
+    private static final long MAX_RETRY_DELAY_MS = Long.getLong(PROP_PREFIX + "max-retry-delay-ms", 2000L);
 
-                    DeleteMetricCommand deleteMetric1Cmd =
-                            deleteMetricCommandInjector.select(Initialized.withValues(metric1Id, authToken, persona))
-                                    .get();
-                    deleteMetric1Cmd.setResourcePath(urlId);
-                    DeleteMetricCommand deleteMetric2Cmd =
-                            deleteMetricCommandInjector.select(Initialized.withValues(metric2Id, authToken, persona))
-                                    .get();
-                    deleteMetric2Cmd.setResourcePath(urlId);
+    private static final Setter SETTER =
+            CommandSetters.forCommand("URL", "DeleteUrlCommand", ExecutionIsolationStrategy.SEMAPHORE);
 
-                    DeleteResourceCommand deleteResourceCmd =
-                            deleteResourceCommandInjector.select(Initialized.withValues(urlId, authToken, persona))
-                                    .get();
+    private final HttpClient client;
 
-                    Observable<String> observeCmd1 = deleteMetric1Cmd.toObservable();
-                    Observable<String> observeCmd2 = deleteMetric2Cmd.toObservable();
-                    Observable<String> observeDeleteResource = deleteResourceCmd.toObservable();
+    private final String urlId;
 
-                    // make the first 2 calls in parallel and the third one after they finish
-                    observeCmd1
-                            .zipWith(observeCmd2, (first, second) -> new ImmutablePair(first, second))
-                            .flatMap((pair) -> observeDeleteResource).subscribe((resourceDeletedResponse) -> {
-                        observer.onNext(resourceDeletedResponse);
-                        observer.onCompleted();
-                    });
+    private final String authToken;
 
-//                    observeCmd1.mergeWith(observeCmd2).concatWith(observeDeleteResource).subscribe(
-//                            (commandResponse) -> {
-//                                observer.onNext(commandResponse);
-//                            });
+    private final String persona;
 
-                } catch (Exception e) {
-                    observer.onError(e);
-                }
-            }
-        });
+    DeleteUrlCommand(HttpClient client, String urlId, String authToken, String persona) {
+        super(SETTER);
+        this.client = client;
+        this.urlId = urlId;
+        this.authToken = authToken;
+        this.persona = persona;
     }
 
-//    @Override
-//    protected String getCacheKey() {
-//        return urlId;
-//    }
-
-    @Override
-    protected Observable<String> resumeWithFallback() {
-        return Observable.just(urlId);
+    /**
+     * @return the observable of the id of the deleted URL, failing once the retries are exhausted
+     */
+    @Override protected Observable<String> construct() {
+        // deferred, so that every retry sends the request again
+        return Observable.defer(() -> HttpClient.observe(client.deleteAsync(authToken, persona,
+                HawkularConfiguration.URL_INVENTORY + "/test/resources/" + urlId)))
+                .flatMap(response -> {
+                    // 404 if an earlier attempt deleted it, but its response was lost
+                    if (response.isSuccessful() || response.getStatus() == 404) {
+                        return Observable.just(urlId);
+                    }
+                    return Observable.<String>error(new UnexpectedStatusException("Delete of the URL " + urlId,
+                            response.getStatus()));
+                })
+                .retryWhen(Retries.withBackoff(MAX_RETRIES, RETRY_DELAY_MS, MAX_RETRY_DELAY_MS));
     }
-
 }
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.hawkular.rx.commands.common.CommandSetters;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.hystrix.HystrixCollapser.CollapsedRequest;
+import com.netflix.hystrix.HystrixCommand;
+import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.netflix.hystrix.HystrixCommandKey;
+
+/**
+ * Serves a batch of collapsed {@link GetUrlCommand}s of one persona and auth token. Each distinct id is fetched once,
+ * the distinct ids concurrently. If the batch also asks for all the URL resources, the other ids are picked from that
+ * list instead. The responses are keyed by the id, the empty string standing for all the URLs.
+ *
+ * @author agent
+ */
+public class GetUrlBatchCommand extends HystrixCommand<Map<String, String>> {
+
+    private final List<GetUrlCommand> commands;
+
+    GetUrlBatchCommand(Collection<CollapsedRequest<String, GetUrlCommand>> requests) {
+        super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("URL"))
+                .andCommandKey(HystrixCommandKey.Factory.asKey("GetUrlBatchCommand"))
+                .andCommandPropertiesDefaults(CommandSetters.commandProperties("URL", "GetUrlBatchCommand")));
+        this.commands = new ArrayList<>(requests.size());
+        requests.forEach(request -> commands.add(request.getArgument()));
+    }
+
+    static String key(String id) {
+        return GetUrlCommand.isAll(id) ? "" : id;
+    }
+
+    @Override
+    protected Map<String, String> run() throws Exception {
+        Set<String> ids = new LinkedHashSet<>();
+        commands.forEach(command -> ids.add(key(command.getId())));
+
+        // the collapser shards the requests by persona and auth token, so any of them can make the calls
+        GetUrlCommand template = commands.get(0);
+        Map<String, String> responses = new HashMap<>();
+        if (ids.remove("")) {
+            String all = template.fetch(null);
+            responses.put("", all);
+            ObjectMapper mapper = template.getMapper();
+            JsonNode resources = all == null ? null : mapper.readTree(all);
+            if (resources != null && resources.isArray()) {
+                for (JsonNode resource : resources) {
+                    String id = resource.path("id").asText(null);
+                    if (id != null && ids.remove(id)) {
+                        responses.put(id, mapper.writeValueAsString(resource));
+                    }
+                }
+            }
+            // what is left is not a URL (anymore), let inventory answer for it the usual way
+        }
+
+        Map<String, CompletableFuture<String>> pending = new LinkedHashMap<>();
+        for (String id : ids) {
+            pending.put(id, template.fetchAsync(id).toCompletableFuture());
+        }
+        try {
+            for (Map.Entry<String, CompletableFuture<String>> entry : pending.entrySet()) {
+                responses.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            pending.values().forEach(future -> future.cancel(false));
+            if (e.getCause() instanceof Exception) {
+                throw (Exception) e.getCause();
+            }
+            throw e;
+        }
+        return responses;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+
+import org.hawkular.rx.commands.common.CommandLogger;
+
+import com.netflix.hystrix.HystrixCollapser;
+import com.netflix.hystrix.HystrixCollapserKey;
+import com.netflix.hystrix.HystrixCollapserProperties;
+import com.netflix.hystrix.HystrixCommand;
+
+/**
+ * Merges the {@link GetUrlCommand}s issued within a short window, by any request, into {@link GetUrlBatchCommand}s,
+ * one per persona and auth token. There is one collapser (and one timer) for all the personas, the commands carry
+ * their credentials and are sharded by them, so every call is made with the caller's own credentials and a bad token
+ * only fails its own batch. The following system properties can be defined:
+ * <pre>
+ * hawkular-services.rx.get-url.collapsing  default true
+ * hawkular-services.rx.get-url.window-ms   how long the first command waits for others to join it, default 10
+ * </pre>
+ *
+ * @author agent
+ */
+public class GetUrlCollapser extends HystrixCollapser<Map<String, String>, String, GetUrlCommand> {
+
+    static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("hawkular-services.rx.get-url.collapsing", "true"));
+
+    private static final int WINDOW_MS = Integer.getInteger("hawkular-services.rx.get-url.window-ms", 10);
+
+    private static final String MBEAN_NAME = "org.hawkular.services:type=GetUrlCollapser";
+
+    private static final HystrixCollapserKey KEY = HystrixCollapserKey.Factory.asKey("GetUrl");
+
+    private static final Stats STATS = new Stats();
+
+    private final GetUrlCommand command;
+
+    public GetUrlCollapser(GetUrlCommand command) {
+        // global scope, the point is to merge the calls of the concurrent requests, the batches are per credentials
+        super(Setter.withCollapserKey(KEY)
+                .andScope(Scope.GLOBAL)
+                .andCollapserPropertiesDefaults(HystrixCollapserProperties.Setter()
+                        .withTimerDelayInMilliseconds(WINDOW_MS)
+                        .withRequestCacheEnabled(GetUrlCommand.REQUEST_CACHE_ENABLED)));
+        this.command = command;
+    }
+
+    /**
+     * Registers the {@link GetUrlCollapserMXBean}, replacing the one of a previous deployment if any.
+     */
+    public static void registerMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+            mbs.registerMBean(new StandardMBean(STATS, GetUrlCollapserMXBean.class, true), name);
+        } catch (Exception e) {
+            CommandLogger.LOGGER.warn(e);
+        }
+    }
+
+    public static void unregisterMBean() {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(MBEAN_NAME);
+            if (mbs.isRegistered(name)) {
+                mbs.unregisterMBean(name);
+            }
+        } catch (Exception e) {
+            CommandLogger.LOGGER.warn(e);
+        }
+    }
+
+    @Override
+    public GetUrlCommand getRequestArgument() {
+        return command;
+    }
+
+    /**
+     * One shard per persona and auth token, the batch command makes all its calls with the credentials of its first
+     * request.
+     */
+    @Override
+    protected Collection<Collection<CollapsedRequest<String, GetUrlCommand>>> shardRequests(
+            Collection<CollapsedRequest<String, GetUrlCommand>> requests) {
+        Map<String, Collection<CollapsedRequest<String, GetUrlCommand>>> shards = new LinkedHashMap<>();
+        for (CollapsedRequest<String, GetUrlCommand> request : requests) {
+            GetUrlCommand argument = request.getArgument();
+            shards.computeIfAbsent(argument.getPersona() + ':' + argument.getAuthTokenKey(), k -> new ArrayList<>())
+                    .add(request);
+        }
+        return shards.values();
+    }
+
+    @Override
+    protected HystrixCommand<Map<String, String>> createCommand(
+            Collection<CollapsedRequest<String, GetUrlCommand>> requests) {
+        STATS.batches.incrementAndGet();
+        STATS.collapsed.addAndGet(requests.size());
+        return new GetUrlBatchCommand(requests);
+    }
+
+    @Override
+    protected void mapResponseToRequests(Map<String, String> batchResponse,
+                                         Collection<CollapsedRequest<String, GetUrlCommand>> requests) {
+        for (CollapsedRequest<String, GetUrlCommand> request : requests) {
+            request.setResponse(batchResponse.get(GetUrlBatchCommand.key(request.getArgument().getId())));
+        }
+    }
+
+    @Override
+    protected String getCacheKey() {
+        return GetUrlCommand.cacheKey(command.getPersona(), command.getId());
+    }
+
+    private static class Stats implements GetUrlCollapserMXBean {
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong collapsed = new AtomicLong();
+
+        @Override
+        public boolean isEnabled() {
+            return ENABLED;
+        }
+
+        @Override
+        public int getWindowMs() {
+            return WINDOW_MS;
+        }
+
+        @Override
+        public long getBatchCount() {
+            return batches.get();
+        }
+
+        @Override
+        public long getCollapsedRequestCount() {
+            return collapsed.get();
+        }
+
+        @Override
+        public double getAverageBatchSize() {
+            long batchCount = batches.get();
+            return batchCount == 0 ? 0 : (double) collapsed.get() / batchCount;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+/**
+ * Management view of the {@link GetUrlCollapser}s, registered as
+ * <code>org.hawkular.services:type=GetUrlCollapser</code>. The collapsed and the batch commands themselves are
+ * reported on the Hystrix metrics stream as usual.
+ *
+ * @author agent
+ */
+public interface GetUrlCollapserMXBean {
+
+    boolean isEnabled();
+
+    int getWindowMs();
+
+    /**
+     * @return the number of batch commands created, i.e. calls to inventory made on behalf of collapsed requests
+     */
+    long getBatchCount();
+
+    long getCollapsedRequestCount();
+
+    double getAverageBatchSize();
+}
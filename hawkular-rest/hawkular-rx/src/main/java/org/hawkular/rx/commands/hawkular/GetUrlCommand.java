@@ -16,58 +16,62 @@
  */
 package org.hawkular.rx.commands.hawkular;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
-import com.netflix.hystrix.HystrixCommandGroupKey;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.hystrix.strategy.concurrency.HystrixRequestContext;
 
 import rx.Observable;
 import rx.Subscriber;
 
 /**
+ * Fetches one URL resource, or all of them if the id is empty. Within one REST request the identical commands are
+ * served from the Hystrix request cache, unless <code>hawkular-services.rx.get-url.request-cache</code> is
+ * <code>false</code>. Use {@link #toCollapsedObservable()} to also merge the concurrent calls of different requests.
+ *
  * @author Jirka Kremser
  */
-@WithValues
 public class GetUrlCommand extends AbstractHttpCommand<String> {
 
-    private String id;
+    static final boolean REQUEST_CACHE_ENABLED =
+            Boolean.parseBoolean(System.getProperty("hawkular-services.rx.get-url.request-cache", "true"));
 
-    private String authToken;
+    private static final Setter SETTER = CommandSetters.forCommand("URL", "GetUrlCommand");
 
-    private String persona;
+    private final HttpClient client;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> GetUrlCommand.this.id = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> GetUrlCommand.this.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> GetUrlCommand.this.persona = nullOrStr(x))
-        );
-    }
+    private final ObjectMapper mapper;
 
-    @Inject
-    private HttpClient client;
+    private final HawkularConfiguration config;
 
-    @Inject
-    private HawkularConfiguration config;
+    private final String id;
 
-    @Inject
-    private GetUrlCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("URL"));
-        initialize(ip);
-    }
+    private final String authToken;
+
+    private final String persona;
 
+    GetUrlCommand(HttpClient client, ObjectMapper mapper, HawkularConfiguration config, String id, String authToken,
+                  String persona) {
+        super(SETTER);
+        this.client = client;
+        this.mapper = mapper;
+        this.config = config;
+        this.id = id;
+        this.authToken = authToken;
+        this.persona = persona;
+    }
 
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
@@ -77,12 +81,7 @@ public class GetUrlCommand extends AbstractHttpCommand<String> {
                     return;
                 }
                 try {
-                    String url = id == null || id.trim().isEmpty() ?
-                            config.URL_INVENTORY + "/resourceTypes/URL/resources" :
-                            config.URL_INVENTORY + "/test/resources/" + id;
-                    RestResponse response = client.get(authToken, persona, url);
-
-                    observer.onNext(response.getBody());
+                    observer.onNext(fetch(id));
                     observer.onCompleted();
                 } catch (Exception e) {
                     observer.onError(e);
@@ -91,10 +90,77 @@ public class GetUrlCommand extends AbstractHttpCommand<String> {
         });
     }
 
-//    @Override
-//    protected String getCacheKey() {
-//        return id;
-//    }
+    /**
+     * @return the batching flavor of this command, or this command's observable if collapsing is disabled
+     */
+    public Observable<String> toCollapsedObservable() {
+        return GetUrlCollapser.ENABLED ? new GetUrlCollapser(this).toObservable() : toObservable();
+    }
+
+    String fetch(String id) throws IOException {
+        RestResponse response = client.get(authToken, persona, url(id));
+        return response.getBody();
+    }
+
+    CompletionStage<String> fetchAsync(String id) {
+        return client.getAsync(authToken, persona, url(id)).thenApply(response -> {
+            try {
+                return response.getBody();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    private String url(String id) {
+        return isAll(id) ?
+                config.URL_INVENTORY + "/resourceTypes/URL/resources" :
+                config.URL_INVENTORY + "/test/resources/" + id;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    String getPersona() {
+        return persona;
+    }
+
+    /**
+     * @return a digest of the auth token, the commands with different tokens must not be served by the same call
+     */
+    String getAuthTokenKey() {
+        if (authToken == null) {
+            return "";
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authToken.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    ObjectMapper getMapper() {
+        return mapper;
+    }
+
+    static boolean isAll(String id) {
+        return id == null || id.trim().isEmpty();
+    }
+
+    static String cacheKey(String persona, String id) {
+        if (!REQUEST_CACHE_ENABLED || !HystrixRequestContext.isCurrentThreadInitialized()) {
+            return null;
+        }
+        return persona + ':' + (isAll(id) ? "" : id);
+    }
+
+    @Override
+    protected String getCacheKey() {
+        return cacheKey(persona, id);
+    }
 
     @Override
     protected Observable<String> resumeWithFallback() {
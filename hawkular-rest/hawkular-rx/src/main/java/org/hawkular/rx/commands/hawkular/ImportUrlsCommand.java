@@ -0,0 +1,198 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
+import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
+import org.hawkular.rx.httpclient.HttpClient;
+import org.hawkular.rx.httpclient.RestResponse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.netflix.hystrix.HystrixCommandProperties.ExecutionIsolationStrategy;
+
+import rx.Observable;
+
+/**
+ * Creates a batch of URL resources and their metrics with one bulk request to inventory. The result maps the id of
+ * every URL of the batch to its status: 201 if it was created, 409 if it already existed, an error status otherwise.
+ * The URLs that were created only partially are deleted before the result is emitted, as in {@link CreateUrlCommand},
+ * a failure of one URL doesn't fail the others.
+ * <p>
+ * Inventory deployments without the bulk endpoint are served by {@link CreateUrlCommand}s, at most
+ * <code>hawkular-services.rx.url-import.fallback-concurrency</code> (default 4) of them at a time, once inventory
+ * answered that the endpoint is missing the bulk request is not sent anymore. The batch is one
+ * command, so its timeout (<code>hawkular-services.rx.command.ImportUrlsCommand.timeout-ms</code>) should grow with
+ * the batch size.
+ *
+ * @author agent
+ */
+public class ImportUrlsCommand extends AbstractHttpCommand<Map<String, Integer>> {
+
+    private static final Setter SETTER =
+            CommandSetters.forCommand("URL", "ImportUrlsCommand", ExecutionIsolationStrategy.SEMAPHORE);
+
+    private static final int FALLBACK_CONCURRENCY =
+            Integer.getInteger("hawkular-services.rx.url-import.fallback-concurrency", 4);
+
+    private final HttpClient client;
+
+    private final ObjectMapper mapper;
+
+    private final InventoryCommands inventoryCommands;
+
+    private final UrlIdGenerator idGenerator;
+
+    private final Map<String, String> urls;
+
+    private final String authToken;
+
+    private final String persona;
+
+    /**
+     * @param urls the URLs with the protocol by their ids, see {@link UrlCommands#normalize(String)}
+     */
+    ImportUrlsCommand(HttpClient client, ObjectMapper mapper, InventoryCommands inventoryCommands,
+                      UrlIdGenerator idGenerator, Map<String, String> urls, String authToken, String persona) {
+        super(SETTER);
+        this.client = client;
+        this.mapper = mapper;
+        this.inventoryCommands = inventoryCommands;
+        this.idGenerator = idGenerator;
+        this.urls = urls;
+        this.authToken = authToken;
+        this.persona = persona;
+    }
+
+    /**
+     * @return the observable of the statuses of the URLs by their ids, in the order of the batch
+     */
+    @Override protected Observable<Map<String, Integer>> construct() {
+        return Observable.defer(() -> {
+            if (urls.isEmpty()) {
+                return Observable.just(Collections.<String, Integer>emptyMap());
+            }
+            if (!CreateUrlCommand.isBulkSupported()) {
+                return createOneByOne();
+            }
+            CanonicalPath tenantPath = CanonicalPath.of().tenant(persona).get();
+            List<Object> resources = new ArrayList<>(urls.size());
+            // the parents come first, inventory creates the resources before their metrics
+            Map<String, Map<String, List<?>>> bulk = new LinkedHashMap<>();
+            bulk.put(tenantPath.toString(), Collections.singletonMap("resource", resources));
+            urls.forEach((hashedUrl, url) -> {
+                resources.add(CreateUrlCommand.urlBlueprint(persona, hashedUrl, url));
+                bulk.put(resourcePath(tenantPath, hashedUrl).toString(), Collections.singletonMap("metric",
+                        CreateUrlCommand.metricBlueprints(persona, hashedUrl)));
+            });
+
+            String json;
+            try {
+                json = mapper.writeValueAsString(bulk);
+            } catch (JsonProcessingException e) {
+                return Observable.error(e);
+            }
+            return HttpClient.observe(client.postAsync(authToken, persona, HawkularConfiguration.URL_INVENTORY +
+                    "/bulk", json)).flatMap(response -> {
+                        try {
+                            if (CreateUrlCommand.isBulkEndpointMissing(mapper, response)) {
+                                CreateUrlCommand.markBulkEndpointMissing();
+                                return createOneByOne();
+                            }
+                            return bulkResult(response, tenantPath);
+                        } catch (IOException e) {
+                            return Observable.error(e);
+                        }
+                    });
+        });
+    }
+
+    private Observable<Map<String, Integer>> bulkResult(RestResponse response, CanonicalPath tenantPath)
+            throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IllegalStateException("Inventory bulk create failed with status " + response.getStatus()
+                    + ": " + response.getBody());
+        }
+        Map<String, Integer> statuses = CreateUrlCommand.bulkStatuses(mapper, response.getBody());
+        Map<String, Integer> result = new LinkedHashMap<>();
+        List<String> partial = new ArrayList<>();
+        for (String hashedUrl : urls.keySet()) {
+            CanonicalPath resourcePath = resourcePath(tenantPath, hashedUrl);
+            Integer resourceStatus = statuses.get(resourcePath.toString());
+            if (resourceStatus == null) {
+                result.put(hashedUrl, 500);
+                continue;
+            }
+            if (resourceStatus != 201) {
+                result.put(hashedUrl, resourceStatus);
+                continue;
+            }
+            boolean metricsCreated = true;
+            for (Metric.Blueprint metric : CreateUrlCommand.metricBlueprints(persona, hashedUrl)) {
+                Integer metricStatus = statuses.get(resourcePath.extend(SegmentType.m, metric.getId()).get()
+                        .toString());
+                metricsCreated &= metricStatus != null && metricStatus == 201;
+            }
+            if (metricsCreated) {
+                result.put(hashedUrl, 201);
+            } else {
+                partial.add(hashedUrl);
+                result.put(hashedUrl, 500);
+            }
+        }
+        // the compensations emit nothing, the list only signals that they are all done
+        return Observable.from(partial)
+                .concatMap(hashedUrl -> CreateUrlCommand.compensate(inventoryCommands, hashedUrl, authToken, persona))
+                .toList()
+                .map(none -> result);
+    }
+
+    private Observable<Map<String, Integer>> createOneByOne() {
+        return Observable.from(urls.entrySet())
+                .flatMap(entry -> new CreateUrlCommand(client, mapper, inventoryCommands, idGenerator,
+                        entry.getValue(), authToken, persona).toObservable()
+                        .map(location -> location == null ? 409 : 201)
+                        .onErrorReturn(e -> 500)
+                        .map(status -> Collections.singletonMap(entry.getKey(), status)), FALLBACK_CONCURRENCY)
+                .reduce(new LinkedHashMap<String, Integer>(), (result, status) -> {
+                    result.putAll(status);
+                    return result;
+                })
+                .map(result -> {
+                    // in the order of the batch
+                    Map<String, Integer> ordered = new LinkedHashMap<>();
+                    urls.keySet().forEach(hashedUrl -> ordered.put(hashedUrl, result.get(hashedUrl)));
+                    return ordered;
+                });
+    }
+
+    private static CanonicalPath resourcePath(CanonicalPath tenantPath, String hashedUrl) {
+        return tenantPath.extend(SegmentType.r, hashedUrl).get();
+    }
+}
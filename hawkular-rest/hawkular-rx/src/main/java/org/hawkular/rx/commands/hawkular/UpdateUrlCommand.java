@@ -16,21 +16,9 @@
  */
 package org.hawkular.rx.commands.hawkular;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hawkular.inventory.api.model.Resource;
-import org.hawkular.rx.cdi.Initialized;
-import org.hawkular.rx.cdi.UpdateCommand;
-import org.hawkular.rx.cdi.WithValues;
-import org.hawkular.rx.commands.inventory.UpdateResourceCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
 
 import rx.Observable;
 import rx.Subscriber;
@@ -38,29 +26,15 @@ import rx.Subscriber;
 /**
  * @author Jirka Kremser
  */
-@WithValues
-@UpdateCommand
 public class UpdateUrlCommand extends CreateUrlCommand {
 
-    private String urlId;
+    private static final Setter SETTER = CommandSetters.forCommand("URL", "UpdateUrlCommand");
 
-    @Inject
-    @Any
-    private Instance<UpdateResourceCommand> updateResourceCommandInjector;
+    private final String urlId;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> UpdateUrlCommand.this.urlId = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> UpdateUrlCommand.this.url = makeUrlWithProtocol(nullOrStr(x))),
-                new ImmutablePair<>(String.class, (x) -> UpdateUrlCommand.this.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> UpdateUrlCommand.this.persona = nullOrStr(x))
-        );
-    }
-
-    @Inject
-    private UpdateUrlCommand(InjectionPoint ip) {
-        super(ip);
+    UpdateUrlCommand(InventoryCommands inventoryCommands, String urlId, String url, String authToken, String persona) {
+        super(SETTER, null, null, inventoryCommands, null, url, authToken, persona);
+        this.urlId = urlId;
     }
 
     @Override protected Observable<String> construct() {
@@ -71,16 +45,12 @@ public class UpdateUrlCommand extends CreateUrlCommand {
                     return;
                 }
                 try {
-                    UpdateResourceCommand updateResourceCmd =
-                            updateResourceCommandInjector.select(Initialized.withValues(urlId, authToken, persona))
-                                    .get();
-
                     Resource.Update urlUpdate = Resource.Update.builder()
                             .withProperty("url", url)
                             .withProperty("hwk-gui-domainSort", getDomainSorterUrl(url))
                             .build();
-                    updateResourceCmd.setResource(urlUpdate);
-                    Observable<String> observeResource = updateResourceCmd.toObservable();
+                    Observable<String> observeResource =
+                            inventoryCommands.updateResource(urlId, authToken, persona, urlUpdate).toObservable();
 
                     observeResource.subscribe((commandResponse) -> {
                         observer.onNext(commandResponse);
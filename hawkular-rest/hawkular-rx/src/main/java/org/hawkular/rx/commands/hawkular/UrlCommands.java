@@ -0,0 +1,96 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import java.util.Map;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.hawkular.rx.cdi.Compact;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
+import org.hawkular.rx.httpclient.HttpClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates the URL commands from their typed arguments. The dependencies are resolved once, when this factory is
+ * injected, so creating a command costs no CDI lookup.
+ *
+ * @author agent
+ */
+@ApplicationScoped
+public class UrlCommands {
+
+    @Inject
+    private HttpClient client;
+
+    @Inject
+    @Compact
+    private ObjectMapper mapper;
+
+    @Inject
+    private HawkularConfiguration config;
+
+    @Inject
+    private UrlIdGenerator idGenerator;
+
+    @Inject
+    private InventoryCommands inventoryCommands;
+
+    /**
+     * @param id the id of the URL resource, <code>null</code> or empty for all of them
+     */
+    public GetUrlCommand getUrl(String id, String authToken, String persona) {
+        return new GetUrlCommand(client, mapper, config, id, authToken, persona);
+    }
+
+    public CreateUrlCommand createUrl(String url, String authToken, String persona) {
+        return new CreateUrlCommand(client, mapper, inventoryCommands, idGenerator, url, authToken, persona);
+    }
+
+    /**
+     * @param urls the URLs by their ids, both as returned by {@link #normalize(String)} and {@link #idOf(String)}
+     */
+    public ImportUrlsCommand importUrls(Map<String, String> urls, String authToken, String persona) {
+        return new ImportUrlsCommand(client, mapper, inventoryCommands, idGenerator, urls, authToken, persona);
+    }
+
+    public UpdateUrlCommand updateUrl(String urlId, String url, String authToken, String persona) {
+        return new UpdateUrlCommand(inventoryCommands, urlId, url, authToken, persona);
+    }
+
+    public DeleteUrlCommand deleteUrl(String urlId, String authToken, String persona) {
+        return new DeleteUrlCommand(client, urlId, authToken, persona);
+    }
+
+    /**
+     * @return the URL as it's stored by the commands, with the protocol
+     */
+    public String normalize(String url) {
+        return CreateUrlCommand.makeUrlWithProtocol(url);
+    }
+
+    /**
+     * @param normalizedUrl the URL returned by {@link #normalize(String)}
+     * @return the id of the URL resource
+     */
+    public String idOf(String normalizedUrl) {
+        return idGenerator.generate(normalizedUrl);
+    }
+}
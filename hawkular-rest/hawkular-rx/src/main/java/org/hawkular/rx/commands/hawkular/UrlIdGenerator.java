@@ -1,5 +1,5 @@
 /*
- * Copyright 2016 Red Hat, Inc. and/or its affiliates
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
  * and other contributors as indicated by the @author tags.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
@@ -14,14 +14,15 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-package org.hawkular.rx.cdi;
+package org.hawkular.rx.commands.hawkular;
 
 /**
- * @author Jirka Kremser
+ * Derives the id of the URL resource from the URL. The implementations are thread-safe, see {@link UrlIds}.
+ *
+ * @author agent
  */
-public final class Initialized {
+@FunctionalInterface
+public interface UrlIdGenerator {
 
-    public static WithValuesLiteral withValues(String... values) {
-        return new WithValuesLiteral(values);
-    }
+    String generate(String url);
 }
@@ -16,25 +16,14 @@
  */
 package org.hawkular.rx.commands.inventory;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hawkular.inventory.api.model.Resource;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.hystrix.HystrixCommandGroupKey;
 
 import rx.Observable;
 import rx.Subscriber;
@@ -42,45 +31,33 @@ import rx.Subscriber;
 /**
  * @author Jirka Kremser
  */
-@WithValues
 public class CreateResourceCommand extends AbstractHttpCommand<String> {
 
-    private Resource.Blueprint resource;
+    private static final Setter SETTER = CommandSetters.forCommand("inventory-resource", "CreateResourceCommand");
 
-    private String authToken;
+    private final HttpClient client;
 
-    private String persona;
+    private final ObjectMapper mapper;
 
-    @Inject
-    @Any
-    private Instance<CreateResourceCommand> createResourceCommandInjector;
+    private final HawkularConfiguration config;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        final CreateResourceCommand self = CreateResourceCommand.this;
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> self.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.persona = nullOrStr(x))
-        );
-    }
+    private final String authToken;
 
-    @Inject
-    private HttpClient client;
+    private final String persona;
 
-    @Inject
-    @Any
-    private ObjectMapper mapper;
+    private final Resource.Blueprint resource;
 
-    @Inject
-    private HawkularConfiguration config;
-
-    @Inject
-    private CreateResourceCommand(InjectionPoint ip) {
-        super(Setter.withGroupKey(HystrixCommandGroupKey.Factory.asKey("inventory-resource")));
-        initialize(ip);
+    CreateResourceCommand(HttpClient client, ObjectMapper mapper, HawkularConfiguration config, String authToken,
+                          String persona, Resource.Blueprint resource) {
+        super(SETTER);
+        this.client = client;
+        this.mapper = mapper;
+        this.config = config;
+        this.authToken = authToken;
+        this.persona = persona;
+        this.resource = resource;
     }
 
-
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
@@ -101,8 +78,4 @@ public class CreateResourceCommand extends AbstractHttpCommand<String> {
             }
         });
     }
-
-    public void setResource(Resource.Blueprint resource) {
-        this.resource = resource;
-    }
 }
@@ -16,62 +16,48 @@
  */
 package org.hawkular.rx.commands.inventory;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
-import com.netflix.hystrix.HystrixCommandGroupKey;
-
 import rx.Observable;
 import rx.Subscriber;
 
 /**
  * @author Jirka Kremser
  */
-@WithValues
+/**
+ * @author Jirka Kremser
+ */
 public class DeleteMetricCommand extends AbstractHttpCommand<String> {
 
-    private String metricId;
+    private static final Setter SETTER = CommandSetters.forCommand("inventory-metric", "DeleteMetricCommand");
 
-    private String resourcePath;
+    private final HttpClient client;
 
-    private String authToken;
+    private final HawkularConfiguration config;
 
-    private String persona;
+    private final String metricId;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        final DeleteMetricCommand self = DeleteMetricCommand.this;
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> self.metricId = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.persona = nullOrStr(x))
-        );
-    }
+    private final String authToken;
 
-    @Inject
-    private HttpClient client;
+    private final String persona;
 
-    @Inject
-    private HawkularConfiguration config;
+    private final String resourcePath;
 
-    @Inject
-    private DeleteMetricCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("inventory-metric"));
-        initialize(ip);
+    DeleteMetricCommand(HttpClient client, HawkularConfiguration config, String metricId, String authToken,
+                        String persona, String resourcePath) {
+        super(SETTER);
+        this.client = client;
+        this.config = config;
+        this.metricId = metricId;
+        this.authToken = authToken;
+        this.persona = persona;
+        this.resourcePath = resourcePath;
     }
 
-
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
@@ -96,8 +82,4 @@ public class DeleteMetricCommand extends AbstractHttpCommand<String> {
             }
         });
     }
-
-    public void setResourcePath(String resourcePath) {
-        this.resourcePath = resourcePath;
-    }
 }
@@ -16,60 +16,45 @@
  */
 package org.hawkular.rx.commands.inventory;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
-import com.netflix.hystrix.HystrixCommandGroupKey;
-
 import rx.Observable;
 import rx.Subscriber;
 
 /**
  * @author Jirka Kremser
  */
-@WithValues
+/**
+ * @author Jirka Kremser
+ */
 public class DeleteResourceCommand extends AbstractHttpCommand<String> {
 
-    private String resourceId;
+    private static final Setter SETTER = CommandSetters.forCommand("inventory-resource", "DeleteResourceCommand");
 
-    private String authToken;
+    private final HttpClient client;
 
-    private String persona;
+    private final HawkularConfiguration config;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        final DeleteResourceCommand self = DeleteResourceCommand.this;
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> self.resourceId = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.persona = nullOrStr(x))
-        );
-    }
+    private final String resourceId;
 
-    @Inject
-    private HttpClient client;
+    private final String authToken;
 
-    @Inject
-    private HawkularConfiguration config;
+    private final String persona;
 
-    @Inject
-    private DeleteResourceCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("inventory-resource"));
-        initialize(ip);
+    DeleteResourceCommand(HttpClient client, HawkularConfiguration config, String resourceId, String authToken,
+                          String persona) {
+        super(SETTER);
+        this.client = client;
+        this.config = config;
+        this.resourceId = resourceId;
+        this.authToken = authToken;
+        this.persona = persona;
     }
 
-
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.inventory;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.rx.cdi.Compact;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.httpclient.HttpClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates the inventory commands. The dependencies are resolved once, when this factory is injected, creating a
+ * command is then just a constructor call.
+ *
+ * @author agent
+ */
+@ApplicationScoped
+public class InventoryCommands {
+
+    @Inject
+    private HttpClient client;
+
+    @Inject
+    @Compact
+    private ObjectMapper mapper;
+
+    @Inject
+    private HawkularConfiguration config;
+
+    public CreateResourceCommand createResource(String authToken, String persona, Resource.Blueprint resource) {
+        return new CreateResourceCommand(client, mapper, config, authToken, persona, resource);
+    }
+
+    public UpdateResourceCommand updateResource(String resourceId, String authToken, String persona,
+                                                Resource.Update resource) {
+        return new UpdateResourceCommand(client, mapper, config, resourceId, authToken, persona, resource);
+    }
+
+    public DeleteResourceCommand deleteResource(String resourceId, String authToken, String persona) {
+        return new DeleteResourceCommand(client, config, resourceId, authToken, persona);
+    }
+
+    /**
+     * @param resourcePath the resource to create the metric under, <code>null</code> for a tenant level metric
+     */
+    public CreateMetricCommand createMetric(String authToken, String persona, String resourcePath,
+                                            Metric.Blueprint metric) {
+        return new CreateMetricCommand(client, mapper, config, authToken, persona, resourcePath, metric);
+    }
+
+    /**
+     * @param resourcePath the resource the metric is under, <code>null</code> for a tenant level metric
+     */
+    public DeleteMetricCommand deleteMetric(String metricId, String authToken, String persona, String resourcePath) {
+        return new DeleteMetricCommand(client, config, metricId, authToken, persona, resourcePath);
+    }
+}
@@ -16,25 +16,14 @@
  */
 package org.hawkular.rx.commands.inventory;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.Any;
-import javax.enterprise.inject.Instance;
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hawkular.inventory.api.model.Resource;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.hystrix.HystrixCommandGroupKey;
 
 import rx.Observable;
 import rx.Subscriber;
@@ -42,48 +31,39 @@ import rx.Subscriber;
 /**
  * @author Jirka Kremser
  */
-@WithValues
+/**
+ * @author Jirka Kremser
+ */
 public class UpdateResourceCommand extends AbstractHttpCommand<String> {
 
-    private Resource.Update resource;
-
-    private String resourceId;
+    private static final Setter SETTER = CommandSetters.forCommand("inventory-resource", "UpdateResourceCommand");
 
-    private String authToken;
+    private final HttpClient client;
 
-    private String persona;
+    private final ObjectMapper mapper;
 
-    @Inject
-    @Any
-    private Instance<UpdateResourceCommand> createResourceCommandInjector;
+    private final HawkularConfiguration config;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        final UpdateResourceCommand self = UpdateResourceCommand.this;
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> self.resourceId = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.persona = nullOrStr(x))
-        );
-    }
+    private final String resourceId;
 
-    @Inject
-    private HttpClient client;
+    private final String authToken;
 
-    @Inject
-    @Any
-    private ObjectMapper mapper;
+    private final String persona;
 
-    @Inject
-    private HawkularConfiguration config;
+    private final Resource.Update resource;
 
-    @Inject
-    private UpdateResourceCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("inventory-resource"));
-        initialize(ip);
+    UpdateResourceCommand(HttpClient client, ObjectMapper mapper, HawkularConfiguration config, String resourceId,
+                          String authToken, String persona, Resource.Update resource) {
+        super(SETTER);
+        this.client = client;
+        this.mapper = mapper;
+        this.config = config;
+        this.resourceId = resourceId;
+        this.authToken = authToken;
+        this.persona = persona;
+        this.resource = resource;
     }
 
-
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
@@ -104,8 +84,4 @@ public class UpdateResourceCommand extends AbstractHttpCommand<String> {
             }
         });
     }
-
-    public void setResource(Resource.Update resource) {
-        this.resource = resource;
-    }
 }
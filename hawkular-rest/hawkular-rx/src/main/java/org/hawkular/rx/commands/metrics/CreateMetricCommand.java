@@ -16,23 +16,14 @@
  */
 package org.hawkular.rx.commands.metrics;
 
-import java.util.Arrays;
-import java.util.List;
-import java.util.function.Consumer;
-
-import javax.enterprise.inject.spi.InjectionPoint;
-import javax.inject.Inject;
-
-import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.hawkular.inventory.api.model.Metric;
-import org.hawkular.rx.cdi.WithValues;
 import org.hawkular.rx.commands.common.AbstractHttpCommand;
+import org.hawkular.rx.commands.common.CommandSetters;
 import org.hawkular.rx.commands.common.HawkularConfiguration;
 import org.hawkular.rx.httpclient.HttpClient;
 import org.hawkular.rx.httpclient.RestResponse;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.netflix.hystrix.HystrixCommandGroupKey;
 
 import rx.Observable;
 import rx.Subscriber;
@@ -40,42 +31,39 @@ import rx.Subscriber;
 /**
  * @author Jirka Kremser
  */
-@WithValues
+/**
+ * @author Jirka Kremser
+ */
 public class CreateMetricCommand extends AbstractHttpCommand<String> {
 
-    private Metric.Blueprint metric;
+    private static final Setter SETTER = CommandSetters.forCommand("metric-metric", "MetricsCreateMetricCommand");
 
-    private String authToken;
+    private final HttpClient client;
 
-    private String persona;
+    private final ObjectMapper mapper;
 
-    private String resourcePath;
+    private final HawkularConfiguration config;
 
-    @Override
-    protected List<ImmutablePair<Class, Consumer>> getSetters() {
-        final CreateMetricCommand self = CreateMetricCommand.this;
-        return Arrays.asList(
-                new ImmutablePair<>(String.class, (x) -> self.authToken = nullOrStr(x)),
-                new ImmutablePair<>(String.class, (x) -> self.persona = nullOrStr(x))
-        );
-    }
+    private final String authToken;
 
-    @Inject
-    private HttpClient client;
+    private final String persona;
 
-    @Inject
-    private ObjectMapper mapper;
+    private final String resourcePath;
 
-    @Inject
-    private HawkularConfiguration config;
+    private final Metric.Blueprint metric;
 
-    @Inject
-    private CreateMetricCommand(InjectionPoint ip) {
-        super(HystrixCommandGroupKey.Factory.asKey("metric-metric"));
-        initialize(ip);
+    CreateMetricCommand(HttpClient client, ObjectMapper mapper, HawkularConfiguration config, String authToken,
+                        String persona, String resourcePath, Metric.Blueprint metric) {
+        super(SETTER);
+        this.client = client;
+        this.mapper = mapper;
+        this.config = config;
+        this.authToken = authToken;
+        this.persona = persona;
+        this.resourcePath = resourcePath;
+        this.metric = metric;
     }
 
-
     @Override protected Observable<String> construct() {
         return Observable.create(new Observable.OnSubscribe<String>() {
             @Override
@@ -98,12 +86,4 @@ public class CreateMetricCommand extends AbstractHttpCommand<String> {
             }
         });
     }
-
-    public void setMetric(Metric.Blueprint metric) {
-        this.metric = metric;
-    }
-
-    public void setResourcePath(String resourcePath) {
-        this.resourcePath = resourcePath;
-    }
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.metrics;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.rx.cdi.Compact;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.httpclient.HttpClient;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Creates the metrics commands, see {@link org.hawkular.rx.commands.inventory.InventoryCommands}.
+ *
+ * @author agent
+ */
+@ApplicationScoped
+public class MetricsCommands {
+
+    @Inject
+    private HttpClient client;
+
+    @Inject
+    @Compact
+    private ObjectMapper mapper;
+
+    @Inject
+    private HawkularConfiguration config;
+
+    public CreateMetricCommand createMetric(String authToken, String persona, String resourcePath,
+                                            Metric.Blueprint metric) {
+        return new CreateMetricCommand(client, mapper, config, authToken, persona, resourcePath, metric);
+    }
+}
@@ -17,9 +17,18 @@
 package org.hawkular.rx.httpclient;
 
 import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import rx.Observable;
+import rx.subscriptions.Subscriptions;
 
 /**
  * Created by jkremser on 12/2/15.
+ * <p>
+ * The blocking methods occupy the calling thread until the response arrives, the <code>*Async</code> ones return
+ * immediately and complete the stage from the client's own threads. The returned {@link RestResponse}s don't hold any
+ * connection, so they need no closing.
  */
 
 public interface HttpClient {
@@ -31,4 +40,35 @@ public interface HttpClient {
     RestResponse put(String authToken, String persona, String url, String json) throws IOException;
 
     RestResponse delete(String authToken, String persona, String url) throws IOException;
+
+    CompletionStage<RestResponse> postAsync(String authToken, String persona, String url, String json);
+
+    CompletionStage<RestResponse> getAsync(String authToken, String persona, String url);
+
+    CompletionStage<RestResponse> putAsync(String authToken, String persona, String url, String json);
+
+    CompletionStage<RestResponse> deleteAsync(String authToken, String persona, String url);
+
+    /**
+     * @param stage the stage returned by one of the <code>*Async</code> methods
+     * @return an observable emitting the response (or the failure) once the stage completes, unsubscribing from it
+     * cancels the stage and so the underlying call, if still running
+     */
+    static Observable<RestResponse> observe(CompletionStage<RestResponse> stage) {
+        return Observable.create(subscriber -> {
+            CompletableFuture<RestResponse> future = stage.toCompletableFuture();
+            subscriber.add(Subscriptions.create(() -> future.cancel(false)));
+            future.whenComplete((response, t) -> {
+                if (subscriber.isUnsubscribed()) {
+                    return;
+                }
+                if (t != null) {
+                    subscriber.onError(t);
+                } else {
+                    subscriber.onNext(response);
+                    subscriber.onCompleted();
+                }
+            });
+        });
+    }
 }
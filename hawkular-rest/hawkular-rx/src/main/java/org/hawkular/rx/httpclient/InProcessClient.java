@@ -0,0 +1,385 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.httpclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
+
+import org.hawkular.inventory.api.EntityAlreadyExistsException;
+import org.hawkular.inventory.api.EntityNotFoundException;
+import org.hawkular.inventory.api.Inventory;
+import org.hawkular.inventory.api.ResourceTypes;
+import org.hawkular.inventory.api.Resources;
+import org.hawkular.inventory.api.Tenants;
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
+import org.hawkular.rx.cdi.Compact;
+import org.hawkular.rx.cdi.HttpTransport;
+import org.hawkular.rx.commands.common.CommandLogger;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The default {@link HttpClient}. When the inventory is deployed in this server, the requests on the inventory
+ * resources the commands use are served by calling it directly, without the loopback HTTP round-trip (connection,
+ * JAX-RS dispatch, serialization of the response). All the other requests, or all of them if the inventory isn't
+ * co-located or if the <code>hawkular-services.rx.in-process</code> system property is set to <code>false</code>, go
+ * over the network using the {@link HttpTransport} client.
+ * <p>
+ * The in-process calls bypass the inventory auth filter, so the auth token is checked against the persona first, by
+ * the filter itself: a request on the inventory tenant goes over the network with the same credentials and only if
+ * it succeeds the persona's calls are made in-process. The accepted (token, persona) pairs are remembered for
+ * <code>hawkular-services.rx.in-process.auth-cache-secs</code> seconds, default 60. A rejected token is never served
+ * in-process, its requests go over the network and fail there.
+ *
+ * @author agent
+ */
+public class InProcessClient implements HttpClient {
+
+    private static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("hawkular-services.rx.in-process", "true"));
+
+    private static final long AUTH_TTL_NANOS =
+            TimeUnit.SECONDS.toNanos(Long.getLong("hawkular-services.rx.in-process.auth-cache-secs", 60L));
+
+    private static final int AUTH_CACHE_SIZE = 1024;
+
+    /**
+     * The cheapest request that goes through the inventory auth filter for the tenant.
+     */
+    private static final String AUTH_CHECK = HawkularConfiguration.URL_INVENTORY + "/tenant";
+
+    private static final String INVENTORY_SERVICE = "java:global/Hawkular/Inventory";
+
+    private static final long LOOKUP_RETRY_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final String RESOURCES = "/test/resources";
+
+    private static final String RESOURCE_TYPES = "/resourceTypes/";
+
+    private static final String BULK = "/bulk";
+
+    private static volatile Inventory inventory;
+
+    private static volatile long lastLookup;
+
+    /**
+     * Persona and token digest of the accepted pairs to the time they have to be checked again.
+     */
+    private static final Map<String, Long> AUTHORIZED = new ConcurrentHashMap<>();
+
+    @Inject
+    @HttpTransport
+    private HttpClient remote;
+
+    @Inject
+    @Compact
+    private ObjectMapper mapper;
+
+    private static Inventory getInventory() {
+        Inventory result = inventory;
+        if (result != null || !ENABLED) {
+            return result;
+        }
+        long now = System.nanoTime();
+        if (lastLookup != 0 && now - lastLookup < LOOKUP_RETRY_NANOS) {
+            return null;
+        }
+        synchronized (InProcessClient.class) {
+            if (inventory == null) {
+                lastLookup = now;
+                try {
+                    inventory = (Inventory) new InitialContext().lookup(INVENTORY_SERVICE);
+                } catch (NamingException | ClassCastException e) {
+                    CommandLogger.LOGGER.debugf("Inventory not available in-process, using HTTP: %s", e.getMessage());
+                }
+            }
+            return inventory;
+        }
+    }
+
+    private static boolean isInProcess(String authToken, String persona, String url) {
+        return authToken != null && persona != null && url != null
+                && url.startsWith(HawkularConfiguration.URL_INVENTORY) && getInventory() != null;
+    }
+
+    private static String authKey(String authToken, String persona) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(authToken.getBytes(StandardCharsets.UTF_8));
+            return persona + ':' + Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean isAuthorized(String key) {
+        Long expiry = AUTHORIZED.get(key);
+        return expiry != null && System.nanoTime() - expiry < 0;
+    }
+
+    /**
+     * @param check the response of the {@link #AUTH_CHECK} request made with the token and persona
+     */
+    private static boolean authorize(String key, RestResponse check) {
+        if (!check.isSuccessful()) {
+            AUTHORIZED.remove(key);
+            return false;
+        }
+        if (AUTHORIZED.size() >= AUTH_CACHE_SIZE) {
+            AUTHORIZED.clear();
+        }
+        AUTHORIZED.put(key, System.nanoTime() + AUTH_TTL_NANOS);
+        return true;
+    }
+
+    private boolean checkAuthorized(String authToken, String persona) throws IOException {
+        String key = authKey(authToken, persona);
+        return isAuthorized(key) || authorize(key, remote.get(authToken, persona, AUTH_CHECK));
+    }
+
+    private CompletionStage<Boolean> checkAuthorizedAsync(String authToken, String persona) {
+        String key = authKey(authToken, persona);
+        if (isAuthorized(key)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        return remote.getAsync(authToken, persona, AUTH_CHECK).thenApply(check -> authorize(key, check));
+    }
+
+    /**
+     * The caller has checked {@link #isInProcess(String, String, String)} and the token.
+     *
+     * @return the response or <code>null</code> if the request has to go over the network
+     */
+    private RestResponse callInProcess(String method, String persona, String url, String json) throws IOException {
+        Inventory inv = getInventory();
+        if (inv == null) {
+            return null;
+        }
+        String path = url.substring(HawkularConfiguration.URL_INVENTORY.length());
+        try {
+            if (path.equals(BULK)) {
+                return "POST".equals(method) ? bulkCreate(inv, persona, json) : null;
+            } else if (path.equals(RESOURCES)) {
+                return "POST".equals(method) ? createResource(inv, persona, url, json) : null;
+            } else if (path.startsWith(RESOURCES + "/")) {
+                String id = path.substring(RESOURCES.length() + 1);
+                if (id.isEmpty() || id.contains("/")) {
+                    return null;
+                }
+                return resourceCall(inv, method, persona, id, json);
+            } else if (path.startsWith(RESOURCE_TYPES) && path.endsWith("/resources") && "GET".equals(method)) {
+                String typeId = path.substring(RESOURCE_TYPES.length(), path.length() - "/resources".length());
+                if (typeId.isEmpty() || typeId.contains("/")) {
+                    return null;
+                }
+                CanonicalPath typePath = CanonicalPath.empty().extend(SegmentType.t, persona)
+                        .extend(SegmentType.rt, typeId).get();
+                return ok(inv.inspect(typePath, ResourceTypes.Single.class).resources().getAll().entities());
+            }
+            return null;
+        } catch (EntityNotFoundException e) {
+            return new RestResponse(404, null, null);
+        } catch (EntityAlreadyExistsException e) {
+            return new RestResponse(409, null, null);
+        } catch (IllegalArgumentException e) {
+            // the ids don't make a valid canonical path, let the inventory REST api report it
+            return null;
+        }
+    }
+
+    private RestResponse createResource(Inventory inv, String persona, String url, String json) throws IOException {
+        Resource.Blueprint blueprint = mapper.readValue(json, Resource.Blueprint.class);
+        CanonicalPath tenantPath = CanonicalPath.empty().extend(SegmentType.t, persona).get();
+        inv.inspect(tenantPath, Tenants.Single.class).resources().create(blueprint);
+        return new RestResponse(201, url + "/" + blueprint.getId(), null);
+    }
+
+    /**
+     * Handles the bulks of resources under the tenant and of metrics under its resources, anything else is left to
+     * the inventory REST api. As there, each entity gets its own status and the failures don't stop the others.
+     */
+    private RestResponse bulkCreate(Inventory inv, String persona, String json) throws IOException {
+        String tenantPath = CanonicalPath.empty().extend(SegmentType.t, persona).get().toString();
+        String resourcePrefix = tenantPath + "/r;";
+        Map<CanonicalPath, JsonNode> resources = new LinkedHashMap<>();
+        Map<CanonicalPath, JsonNode> metrics = new LinkedHashMap<>();
+        Iterator<Map.Entry<String, JsonNode>> entries = mapper.readTree(json).fields();
+        while (entries.hasNext()) {
+            Map.Entry<String, JsonNode> entry = entries.next();
+            String parent = entry.getKey();
+            JsonNode blueprints = entry.getValue();
+            if (parent.equals(tenantPath) && blueprints.size() == 1 && blueprints.path("resource").isArray()) {
+                resources.put(CanonicalPath.fromString(parent), blueprints.get("resource"));
+            } else if (parent.startsWith(resourcePrefix) && parent.indexOf('/', resourcePrefix.length()) < 0
+                    && blueprints.size() == 1 && blueprints.path("metric").isArray()) {
+                metrics.put(CanonicalPath.fromString(parent), blueprints.get("metric"));
+            } else {
+                return null;
+            }
+        }
+
+        // the parents first, the resources may be the parents of the metrics
+        Map<String, Integer> resourceStatuses = new LinkedHashMap<>();
+        Map<String, Integer> metricStatuses = new LinkedHashMap<>();
+        for (Map.Entry<CanonicalPath, JsonNode> entry : resources.entrySet()) {
+            Tenants.Single tenant = inv.inspect(entry.getKey(), Tenants.Single.class);
+            for (JsonNode node : entry.getValue()) {
+                Resource.Blueprint blueprint = mapper.treeToValue(node, Resource.Blueprint.class);
+                resourceStatuses.put(entry.getKey().extend(SegmentType.r, blueprint.getId()).get().toString(),
+                        status(() -> tenant.resources().create(blueprint)));
+            }
+        }
+        for (Map.Entry<CanonicalPath, JsonNode> entry : metrics.entrySet()) {
+            Resources.Single resource = inv.inspect(entry.getKey(), Resources.Single.class);
+            for (JsonNode node : entry.getValue()) {
+                Metric.Blueprint blueprint = mapper.treeToValue(node, Metric.Blueprint.class);
+                metricStatuses.put(entry.getKey().extend(SegmentType.m, blueprint.getId()).get().toString(),
+                        status(() -> resource.metrics().create(blueprint)));
+            }
+        }
+        // grouped by the element type, as the inventory REST api does
+        Map<String, Map<String, Integer>> statuses = new LinkedHashMap<>();
+        statuses.put("resource", resourceStatuses);
+        statuses.put("metric", metricStatuses);
+        return new RestResponse(201, null, mapper.writeValueAsString(statuses));
+    }
+
+    private static int status(Runnable create) {
+        try {
+            create.run();
+            return 201;
+        } catch (EntityAlreadyExistsException e) {
+            return 409;
+        } catch (EntityNotFoundException e) {
+            return 404;
+        } catch (RuntimeException e) {
+            CommandLogger.LOGGER.debugf(e, "In-process bulk create failed");
+            return 500;
+        }
+    }
+
+    private RestResponse resourceCall(Inventory inv, String method, String persona, String id, String json)
+            throws IOException {
+        CanonicalPath resourcePath = CanonicalPath.empty().extend(SegmentType.t, persona)
+                .extend(SegmentType.r, id).get();
+        Resources.Single resource = inv.inspect(resourcePath, Resources.Single.class);
+        switch (method) {
+            case "GET":
+                return ok(resource.entity());
+            case "PUT":
+                resource.update(mapper.readValue(json, Resource.Update.class));
+                return new RestResponse(204, null, null);
+            case "DELETE":
+                resource.delete();
+                return new RestResponse(204, null, null);
+            default:
+                return null;
+        }
+    }
+
+    private RestResponse ok(Object entity) throws IOException {
+        return new RestResponse(200, null, mapper.writeValueAsString(entity));
+    }
+
+    private RestResponse call(String method, String authToken, String persona, String url, String json)
+            throws IOException {
+        if (!isInProcess(authToken, persona, url) || !checkAuthorized(authToken, persona)) {
+            return null;
+        }
+        return callInProcess(method, persona, url, json);
+    }
+
+    /**
+     * The in-process calls are cheap compared to the HTTP ones, they run on the thread completing the token check,
+     * i.e. the caller's one once the token is known.
+     *
+     * @return a stage completed with the response or <code>null</code> if the request has to go over the network
+     */
+    private CompletionStage<RestResponse> callAsync(String method, String authToken, String persona, String url,
+                                                    String json) {
+        if (!isInProcess(authToken, persona, url)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return checkAuthorizedAsync(authToken, persona).thenApply(authorized -> {
+            try {
+                return authorized ? callInProcess(method, persona, url, json) : null;
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+    }
+
+    public RestResponse post(String authToken, String persona, String url, String json) throws IOException {
+        RestResponse response = call("POST", authToken, persona, url, json);
+        return response != null ? response : remote.post(authToken, persona, url, json);
+    }
+
+    public RestResponse get(String authToken, String persona, String url) throws IOException {
+        RestResponse response = call("GET", authToken, persona, url, null);
+        return response != null ? response : remote.get(authToken, persona, url);
+    }
+
+    public RestResponse put(String authToken, String persona, String url, String json) throws IOException {
+        RestResponse response = call("PUT", authToken, persona, url, json);
+        return response != null ? response : remote.put(authToken, persona, url, json);
+    }
+
+    public RestResponse delete(String authToken, String persona, String url) throws IOException {
+        RestResponse response = call("DELETE", authToken, persona, url, null);
+        return response != null ? response : remote.delete(authToken, persona, url);
+    }
+
+    public CompletionStage<RestResponse> postAsync(String authToken, String persona, String url, String json) {
+        return callAsync("POST", authToken, persona, url, json).thenCompose(response -> response != null
+                ? CompletableFuture.completedFuture(response) : remote.postAsync(authToken, persona, url, json));
+    }
+
+    public CompletionStage<RestResponse> getAsync(String authToken, String persona, String url) {
+        return callAsync("GET", authToken, persona, url, null).thenCompose(response -> response != null
+                ? CompletableFuture.completedFuture(response) : remote.getAsync(authToken, persona, url));
+    }
+
+    public CompletionStage<RestResponse> putAsync(String authToken, String persona, String url, String json) {
+        return callAsync("PUT", authToken, persona, url, json).thenCompose(response -> response != null
+                ? CompletableFuture.completedFuture(response) : remote.putAsync(authToken, persona, url, json));
+    }
+
+    public CompletionStage<RestResponse> deleteAsync(String authToken, String persona, String url) {
+        return callAsync("DELETE", authToken, persona, url, null).thenCompose(response -> response != null
+                ? CompletableFuture.completedFuture(response) : remote.deleteAsync(authToken, persona, url));
+    }
+}
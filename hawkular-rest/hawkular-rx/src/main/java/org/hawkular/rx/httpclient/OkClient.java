@@ -17,9 +17,17 @@
 package org.hawkular.rx.httpclient;
 
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
-import javax.enterprise.inject.Default;
+import javax.inject.Inject;
 
+import org.hawkular.rx.cdi.HttpTransport;
+import org.hawkular.rx.cdi.OkHttpClientProducer;
+
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -27,78 +35,89 @@ import okhttp3.RequestBody;
 import okhttp3.Response;
 
 /**
+ * Sends the requests over the network. All the instances share the {@link OkHttpClient} owned by
+ * {@link OkHttpClientProducer}, see there for its configuration.
+ *
  * @author Jirka Kremser
  */
-@Default
+@HttpTransport
 public class OkClient implements HttpClient {
 
     public static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
 
-    private final OkHttpClient delegatingClient = new OkHttpClient();
+    @Inject
+    @HttpTransport
+    private OkHttpClient delegatingClient;
 
-    public RestResponse post(String authToken, String persona, String url, String json) throws IOException {
-        RequestBody body = RequestBody.create(JSON, json);
-        Request request = new Request.Builder()
+    private Request.Builder newRequest(String authToken, String persona, String url) {
+        return new Request.Builder()
                 .url(url)
                 .addHeader("Authorization", authToken)
                 .addHeader("Hawkular-Persona", persona)
-                .addHeader("Hawkular-Tenant", "hawkular")
-                .post(body)
-                .build();
-//        this.delegatingClient.interceptors().add(null);
+                .addHeader("Hawkular-Tenant", "hawkular");
+    }
 
+    private RestResponse execute(Request request) throws IOException {
         Response response = this.delegatingClient.newCall(request).execute();
-
-        // todo: async
-//        Response response = this.delegatingClient.newCall(request).enqueue(new Callback() {
-//            @Override public void onFailure(Request request, IOException e) {
-//
-//            }
-//
-//            @Override public void onResponse(Response response) throws IOException {
-//
-//            }
-//        });
         return new RestResponse(response);
     }
 
-    public RestResponse get(String authToken, String persona, String url) throws IOException {
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", authToken)
-                .addHeader("Hawkular-Persona", persona)
-                .addHeader("Hawkular-Tenant", "hawkular")
-                .get()
-                .build();
+    private CompletionStage<RestResponse> enqueue(Request request) {
+        CompletableFuture<RestResponse> result = new CompletableFuture<>();
+        Call call = this.delegatingClient.newCall(request);
+        // cancelling the stage, e.g. when its observer unsubscribes, cancels the call
+        result.whenComplete((response, t) -> {
+            if (t instanceof CancellationException) {
+                call.cancel();
+            }
+        });
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                result.completeExceptionally(e);
+            }
 
-        Response response = this.delegatingClient.newCall(request).execute();
-        return new RestResponse(response);
+            @Override
+            public void onResponse(Call call, Response response) {
+                try {
+                    result.complete(new RestResponse(response));
+                } catch (IOException | RuntimeException e) {
+                    result.completeExceptionally(e);
+                }
+            }
+        });
+        return result;
     }
 
-    public RestResponse put(String authToken, String persona, String url, String json) throws IOException {
-        RequestBody body = RequestBody.create(JSON, json);
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", authToken)
-                .addHeader("Hawkular-Persona", persona)
-                .addHeader("Hawkular-Tenant", "hawkular")
-                .put(body)
-                .build();
+    public RestResponse post(String authToken, String persona, String url, String json) throws IOException {
+        return execute(newRequest(authToken, persona, url).post(RequestBody.create(JSON, json)).build());
+    }
 
-        Response response = this.delegatingClient.newCall(request).execute();
-        return new RestResponse(response);
+    public RestResponse get(String authToken, String persona, String url) throws IOException {
+        return execute(newRequest(authToken, persona, url).get().build());
+    }
+
+    public RestResponse put(String authToken, String persona, String url, String json) throws IOException {
+        return execute(newRequest(authToken, persona, url).put(RequestBody.create(JSON, json)).build());
     }
 
     public RestResponse delete(String authToken, String persona, String url) throws IOException {
-        Request request = new Request.Builder()
-                .url(url)
-                .addHeader("Authorization", authToken)
-                .addHeader("Hawkular-Persona", persona)
-                .addHeader("Hawkular-Tenant", "hawkular")
-                .delete()
-                .build();
+        return execute(newRequest(authToken, persona, url).delete().build());
+    }
 
-        Response response = this.delegatingClient.newCall(request).execute();
-        return new RestResponse(response);
+    public CompletionStage<RestResponse> postAsync(String authToken, String persona, String url, String json) {
+        return enqueue(newRequest(authToken, persona, url).post(RequestBody.create(JSON, json)).build());
+    }
+
+    public CompletionStage<RestResponse> getAsync(String authToken, String persona, String url) {
+        return enqueue(newRequest(authToken, persona, url).get().build());
+    }
+
+    public CompletionStage<RestResponse> putAsync(String authToken, String persona, String url, String json) {
+        return enqueue(newRequest(authToken, persona, url).put(RequestBody.create(JSON, json)).build());
+    }
+
+    public CompletionStage<RestResponse> deleteAsync(String authToken, String persona, String url) {
+        return enqueue(newRequest(authToken, persona, url).delete().build());
     }
 }
@@ -18,29 +18,55 @@ package org.hawkular.rx.httpclient;
 
 import java.io.IOException;
 
+import okhttp3.Headers;
 import okhttp3.Response;
+import okhttp3.ResponseBody;
 
 /**
+ * The body of the response is read and the response closed right away, so its connection always goes back to the
+ * pool, whether the caller reads the body or only the headers.
+ *
  * @author Jirka Kremser
  */
 public class RestResponse {
     private static final String HEADER_LOCATION = "Location";
 
-    private final Response delegatingResponse;
+    private final int status;
+    private final Headers headers;
+    private final String body;
+
+    public RestResponse(Response delegatingResponse) throws IOException {
+        this.status = delegatingResponse.code();
+        this.headers = delegatingResponse.headers();
+        try (ResponseBody responseBody = delegatingResponse.body()) {
+            this.body = responseBody == null ? null : responseBody.string();
+        }
+    }
+
+    public RestResponse(int status, String locationHeader, String body) {
+        this.status = status;
+        this.headers = locationHeader == null ? new Headers.Builder().build()
+                : new Headers.Builder().add(HEADER_LOCATION, locationHeader).build();
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
 
-    public RestResponse(Response delegatingResponse) {
-        this.delegatingResponse = delegatingResponse;
+    public boolean isSuccessful() {
+        return status >= 200 && status < 300;
     }
 
     public String getBody() throws IOException {
-        return delegatingResponse.body().string();
+        return body;
     }
 
     public String getHeader(String header) {
-        return delegatingResponse.header(header);
+        return headers.get(header);
     }
 
     public String getLocationHeader() {
-        return delegatingResponse.header(HEADER_LOCATION);
+        return headers.get(HEADER_LOCATION);
     }
 }
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.httpclient;
+
+/**
+ * The remote service answered with a status the command can't handle.
+ *
+ * @author agent
+ */
+public class UnexpectedStatusException extends RuntimeException {
+
+    private final int status;
+
+    public UnexpectedStatusException(String request, int status) {
+        super(request + " failed with status " + status);
+        this.status = status;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * @return true for the server errors and for throttling (429), which may go away if the request is repeated
+     */
+    public boolean isTransient() {
+        return status >= 500 || status == 429;
+    }
+}
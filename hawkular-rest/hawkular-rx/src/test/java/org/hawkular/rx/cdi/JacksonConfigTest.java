@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.cdi;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * The Afterburner module has to change only how fast the mappers are, never what they write.
+ *
+ * @author agent
+ */
+public class JacksonConfigTest {
+
+    private static final String PERSONA = "tenant";
+    private static final String ID = "f10462c532a64dff46f0d49974247e76";
+
+    @Test
+    public void compactOutputIsIdentical() throws Exception {
+        ObjectMapper plain = new ObjectMapper();
+        JacksonConfig.initializeCompactObjectMapper(plain);
+        assertIdenticalOutput(plain, afterburned(JacksonConfig::initializeCompactObjectMapper));
+    }
+
+    @Test
+    public void prettyOutputIsIdentical() throws Exception {
+        ObjectMapper plain = new ObjectMapper();
+        JacksonConfig.initializeObjectMapper(plain);
+        assertIdenticalOutput(plain, afterburned(JacksonConfig::initializeObjectMapper));
+    }
+
+    @Test
+    public void readBlueprintsAreIdentical() throws Exception {
+        ObjectMapper plain = new ObjectMapper();
+        JacksonConfig.initializeCompactObjectMapper(plain);
+        ObjectMapper afterburned = afterburned(JacksonConfig::initializeCompactObjectMapper);
+
+        byte[] json = plain.writeValueAsBytes(resource());
+        assertArrayEquals(json, plain.writeValueAsBytes(plain.readValue(json, Resource.Blueprint.class)));
+        assertArrayEquals(json, plain.writeValueAsBytes(afterburned.readValue(json, Resource.Blueprint.class)));
+    }
+
+    private static ObjectMapper afterburned(Consumer<ObjectMapper> initializer) {
+        ObjectMapper mapper = new ObjectMapper();
+        initializer.accept(mapper);
+        // registering it again, should the system property have registered it already, is a no-op
+        mapper.registerModule(new AfterburnerModule());
+        return mapper;
+    }
+
+    private static void assertIdenticalOutput(ObjectMapper plain, ObjectMapper afterburned) throws Exception {
+        List<Object> values = Arrays.asList(resource(), metrics(), bulk(), update(), statuses(), resourcePath());
+        // twice, Afterburner swaps in the generated accessors after the first use of a type
+        for (int i = 0; i < 2; i++) {
+            for (Object value : values) {
+                assertArrayEquals(String.valueOf(value), plain.writeValueAsBytes(value),
+                        afterburned.writeValueAsBytes(value));
+            }
+        }
+    }
+
+    private static Resource.Blueprint resource() {
+        return Resource.Blueprint.builder()
+                .withId(ID)
+                .withResourceTypePath(CanonicalPath.of().tenant(PERSONA).resourceType("URL").get().toString())
+                .withProperty("url", "http://www.hawkular.org")
+                .withProperty("hwk-gui-domainSort", "org.hawkular.www")
+                .build();
+    }
+
+    private static List<Metric.Blueprint> metrics() {
+        return Arrays.asList(
+                Metric.Blueprint.builder()
+                        .withId(ID + ".status.duration")
+                        .withMetricTypePath(CanonicalPath.of().tenant(PERSONA).metricType("status.duration.type")
+                                .get().toString())
+                        .build(),
+                Metric.Blueprint.builder()
+                        .withId(ID + ".status.code")
+                        .withMetricTypePath(CanonicalPath.of().tenant(PERSONA).metricType("status.code.type")
+                                .get().toString())
+                        .build());
+    }
+
+    /**
+     * As posted to the inventory <code>/bulk</code> endpoint.
+     */
+    private static Map<String, Map<String, List<?>>> bulk() {
+        CanonicalPath tenantPath = CanonicalPath.of().tenant(PERSONA).get();
+        Map<String, Map<String, List<?>>> bulk = new LinkedHashMap<>();
+        bulk.put(tenantPath.toString(), Collections.singletonMap("resource", Collections.singletonList(resource())));
+        bulk.put(resourcePath().toString(),
+                Collections.singletonMap("metric", metrics()));
+        return bulk;
+    }
+
+    private static CanonicalPath resourcePath() {
+        return CanonicalPath.of().tenant(PERSONA).get().extend(SegmentType.r, ID).get();
+    }
+
+    private static Resource.Update update() {
+        return Resource.Update.builder()
+                .withProperty("url", "http://www.hawkular.org")
+                .withProperty("hwk-gui-domainSort", "org.hawkular.www")
+                .build();
+    }
+
+    private static Map<String, Map<String, Integer>> statuses() {
+        Map<String, Map<String, Integer>> statuses = new LinkedHashMap<>();
+        statuses.put("resource", Collections.singletonMap("/t;" + PERSONA + "/r;" + ID, 201));
+        statuses.put("metric", Collections.singletonMap("/t;" + PERSONA + "/r;" + ID + "/m;" + ID + ".status.code",
+                409));
+        return statuses;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands;
+
+import java.lang.reflect.Field;
+
+import javax.inject.Inject;
+
+import com.netflix.hystrix.HystrixObservableCommand;
+
+/**
+ * Fills the injected fields of the command factories, as the container would, and runs the commands they create.
+ *
+ * @author agent
+ */
+public final class Factories {
+
+    private Factories() {
+    }
+
+    /**
+     * Sets every {@link Inject} field of the factory to the dependency of its type.
+     *
+     * @throws IllegalArgumentException if a field has no dependency of its type, or more than one
+     */
+    public static <T> T inject(T factory, Object... dependencies) {
+        for (Field field : factory.getClass().getDeclaredFields()) {
+            if (!field.isAnnotationPresent(Inject.class)) {
+                continue;
+            }
+            Object value = null;
+            for (Object dependency : dependencies) {
+                if (field.getType().isInstance(dependency)) {
+                    if (value != null) {
+                        throw new IllegalArgumentException("Ambiguous dependencies for " + field);
+                    }
+                    value = dependency;
+                }
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("No dependency for " + field);
+            }
+            field.setAccessible(true);
+            try {
+                field.set(factory, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        return factory;
+    }
+
+    /**
+     * Runs the command and waits for it to complete.
+     *
+     * @return the only value the command emitted
+     */
+    public static <T> T single(HystrixObservableCommand<T> command) {
+        return command.toObservable().toBlocking().single();
+    }
+}
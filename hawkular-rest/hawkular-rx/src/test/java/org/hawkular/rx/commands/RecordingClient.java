@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import org.hawkular.rx.httpclient.HttpClient;
+import org.hawkular.rx.httpclient.RestResponse;
+
+/**
+ * An {@link HttpClient} that records the requests of the commands and answers them without any network.
+ *
+ * @author agent
+ */
+public final class RecordingClient implements HttpClient {
+
+    /**
+     * One request, as sent by a command.
+     */
+    public static final class Request {
+        public final String method;
+        public final String authToken;
+        public final String persona;
+        public final String url;
+        public final String json;
+
+        private Request(String method, String authToken, String persona, String url, String json) {
+            this.method = method;
+            this.authToken = authToken;
+            this.persona = persona;
+            this.url = url;
+            this.json = json;
+        }
+
+        @Override public String toString() {
+            return method + " " + url;
+        }
+    }
+
+    private final List<Request> requests = new ArrayList<>();
+
+    private volatile Function<Request, RestResponse> responder = request -> new RestResponse(200, null, null);
+
+    /**
+     * @param responder answers each recorded request
+     */
+    public RecordingClient answer(Function<Request, RestResponse> responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    /**
+     * @return the requests sent so far, in the order they were sent
+     */
+    public synchronized List<Request> getRequests() {
+        return new ArrayList<>(requests);
+    }
+
+    /**
+     * @return the only request sent so far
+     * @throws IllegalStateException if there were more or none
+     */
+    public synchronized Request getRequest() {
+        if (requests.size() != 1) {
+            throw new IllegalStateException("Expected one request, sent " + requests);
+        }
+        return requests.get(0);
+    }
+
+    @Override public RestResponse post(String authToken, String persona, String url, String json) {
+        return record("POST", authToken, persona, url, json);
+    }
+
+    @Override public RestResponse get(String authToken, String persona, String url) {
+        return record("GET", authToken, persona, url, null);
+    }
+
+    @Override public RestResponse put(String authToken, String persona, String url, String json) {
+        return record("PUT", authToken, persona, url, json);
+    }
+
+    @Override public RestResponse delete(String authToken, String persona, String url) {
+        return record("DELETE", authToken, persona, url, null);
+    }
+
+    @Override public CompletionStage<RestResponse> postAsync(String authToken, String persona, String url,
+                                                             String json) {
+        return CompletableFuture.completedFuture(post(authToken, persona, url, json));
+    }
+
+    @Override public CompletionStage<RestResponse> getAsync(String authToken, String persona, String url) {
+        return CompletableFuture.completedFuture(get(authToken, persona, url));
+    }
+
+    @Override public CompletionStage<RestResponse> putAsync(String authToken, String persona, String url,
+                                                            String json) {
+        return CompletableFuture.completedFuture(put(authToken, persona, url, json));
+    }
+
+    @Override public CompletionStage<RestResponse> deleteAsync(String authToken, String persona, String url) {
+        return CompletableFuture.completedFuture(delete(authToken, persona, url));
+    }
+
+    private RestResponse record(String method, String authToken, String persona, String url, String json) {
+        Request request = new Request(method, authToken, persona, url, json);
+        synchronized (this) {
+            requests.add(request);
+        }
+        return responder.apply(request);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.hawkular.rx.httpclient.RestResponse;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reading the result of the inventory <code>/bulk</code> endpoint.
+ *
+ * @author agent
+ */
+public class CreateUrlCommandTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void bulkStatusesGroupedByElementType() throws IOException {
+        // as answered by the inventory REST api, and by the InProcessClient
+        String body = "{\"resource\":{\"/t;tenant/r;abc\":201},"
+                + "\"metric\":{\"/t;tenant/r;abc/m;abc.status.duration\":201,"
+                + "\"/t;tenant/r;abc/m;abc.status.code\":409}}";
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("/t;tenant/r;abc", 201);
+        expected.put("/t;tenant/r;abc/m;abc.status.duration", 201);
+        expected.put("/t;tenant/r;abc/m;abc.status.code", 409);
+        assertEquals(expected, CreateUrlCommand.bulkStatuses(mapper, body));
+    }
+
+    @Test
+    public void bulkStatusesFlat() throws IOException {
+        String body = "{\"/t;tenant/r;abc\":201,\"/t;tenant/r;abc/m;abc.status.code\":500}";
+
+        Map<String, Integer> expected = new LinkedHashMap<>();
+        expected.put("/t;tenant/r;abc", 201);
+        expected.put("/t;tenant/r;abc/m;abc.status.code", 500);
+        assertEquals(expected, CreateUrlCommand.bulkStatuses(mapper, body));
+    }
+
+    @Test
+    public void bulkStatusesEmpty() throws IOException {
+        assertEquals(0, CreateUrlCommand.bulkStatuses(mapper, "{}").size());
+    }
+
+    @Test(expected = IOException.class)
+    public void bulkStatusesNotAnObject() throws IOException {
+        CreateUrlCommand.bulkStatuses(mapper, "[201]");
+    }
+
+    @Test(expected = IOException.class)
+    public void bulkStatusesNotAStatus() throws IOException {
+        CreateUrlCommand.bulkStatuses(mapper, "{\"resource\":{\"/t;tenant/r;abc\":\"created\"}}");
+    }
+
+    @Test(expected = IOException.class)
+    public void bulkStatusesNoBody() throws IOException {
+        CreateUrlCommand.bulkStatuses(mapper, null);
+    }
+
+    @Test
+    public void bulkEndpointMissing() throws IOException {
+        assertTrue(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(405, null, null)));
+        assertTrue(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(404, null, null)));
+        assertTrue(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(404, null,
+                "<html><body>Not Found</body></html>")));
+    }
+
+    @Test
+    public void bulkEndpointPresent() throws IOException {
+        // inventory reporting on the entities of the bulk, the URLs must not be retried one by one
+        assertFalse(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(404, null,
+                "{\"errorMsg\":\"Tenant not found\"}")));
+        assertFalse(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(201, null, "{}")));
+        assertFalse(CreateUrlCommand.isBulkEndpointMissing(mapper, new RestResponse(500, null, null)));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import static org.hawkular.rx.commands.Factories.single;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.inventory.paths.SegmentType;
+import org.hawkular.rx.cdi.JacksonConfig;
+import org.hawkular.rx.commands.Factories;
+import org.hawkular.rx.commands.RecordingClient;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.commands.inventory.InventoryCommands;
+import org.hawkular.rx.httpclient.RestResponse;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The commands created by {@link UrlCommands} send their arguments with the dependencies of the factory.
+ *
+ * @author agent
+ */
+public class UrlCommandsTest {
+
+    private static final String AUTH_TOKEN = "Bearer token";
+    private static final String PERSONA = "tenant";
+    private static final String URL = "http://www.hawkular.org";
+
+    private final ObjectMapper mapper = new JacksonConfig().getCompactMapper();
+
+    private final HawkularConfiguration config = new HawkularConfiguration();
+
+    private final UrlIdGenerator idGenerator = UrlIds.of(UrlIds.MD5);
+
+    private final String id = idGenerator.generate(URL);
+
+    private final RecordingClient client = new RecordingClient();
+
+    private final UrlCommands urlCommands = Factories.inject(new UrlCommands(), client, mapper, config, idGenerator,
+            Factories.inject(new InventoryCommands(), client, mapper, config));
+
+    @Test
+    public void getUrl() {
+        client.answer(request -> new RestResponse(200, null, "{\"id\":\"" + id + "\"}"));
+
+        assertEquals("{\"id\":\"" + id + "\"}", single(urlCommands.getUrl(id, AUTH_TOKEN, PERSONA)));
+        assertRequest("GET", HawkularConfiguration.URL_INVENTORY + "/test/resources/" + id);
+    }
+
+    @Test
+    public void getAllUrls() {
+        client.answer(request -> new RestResponse(200, null, "[]"));
+
+        assertEquals("[]", single(urlCommands.getUrl(null, AUTH_TOKEN, PERSONA)));
+        assertRequest("GET", HawkularConfiguration.URL_INVENTORY + "/resourceTypes/URL/resources");
+    }
+
+    @Test
+    public void createUrl() throws Exception {
+        client.answer(request -> new RestResponse(201, null, allCreated(id)));
+
+        // the protocol is added and the id is the one of the injected generator
+        assertEquals(CreateUrlCommand.resourceLocation(id), single(urlCommands.createUrl("www.hawkular.org",
+                AUTH_TOKEN, PERSONA)));
+        RecordingClient.Request request = assertRequest("POST", HawkularConfiguration.URL_INVENTORY + "/bulk");
+        assertEquals(bulk(id), request.json);
+    }
+
+    @Test
+    public void importUrls() throws Exception {
+        client.answer(request -> new RestResponse(201, null, allCreated(id)));
+        String normalized = urlCommands.normalize("www.hawkular.org");
+
+        assertEquals(Collections.singletonMap(id, 201), single(urlCommands.importUrls(
+                Collections.singletonMap(urlCommands.idOf(normalized), normalized), AUTH_TOKEN, PERSONA)));
+        RecordingClient.Request request = assertRequest("POST", HawkularConfiguration.URL_INVENTORY + "/bulk");
+        assertEquals(bulk(id), request.json);
+    }
+
+    @Test
+    public void updateUrl() {
+        client.answer(request -> new RestResponse(204, null, null));
+
+        // through the injected inventory commands
+        urlCommands.updateUrl(id, URL, AUTH_TOKEN, PERSONA).toObservable().toBlocking().first();
+        RecordingClient.Request request = assertRequest("PUT",
+                HawkularConfiguration.URL_INVENTORY + "/test/resources/" + id);
+        assertTrue(request.json, request.json.contains("\"url\":\"" + URL + "\""));
+    }
+
+    @Test
+    public void deleteUrl() {
+        client.answer(request -> new RestResponse(204, null, null));
+
+        assertEquals(id, single(urlCommands.deleteUrl(id, AUTH_TOKEN, PERSONA)));
+        assertRequest("DELETE", HawkularConfiguration.URL_INVENTORY + "/test/resources/" + id);
+    }
+
+    @Test
+    public void normalizeAndIdOf() {
+        assertEquals(URL, urlCommands.normalize("www.hawkular.org"));
+        assertEquals(URL, urlCommands.normalize(URL));
+        assertEquals(id, urlCommands.idOf(urlCommands.normalize("www.hawkular.org")));
+    }
+
+    @Test
+    public void everyCallCreatesANewCommand() {
+        // the commands are single use
+        assertNotSame(urlCommands.deleteUrl(id, AUTH_TOKEN, PERSONA), urlCommands.deleteUrl(id, AUTH_TOKEN, PERSONA));
+    }
+
+    private RecordingClient.Request assertRequest(String method, String url) {
+        RecordingClient.Request request = client.getRequest();
+        assertEquals(method, request.method);
+        assertEquals(url, request.url);
+        assertEquals(AUTH_TOKEN, request.authToken);
+        assertEquals(PERSONA, request.persona);
+        return request;
+    }
+
+    /**
+     * @return the bulk request creating the URL and its metrics, as written by the injected mapper
+     */
+    private String bulk(String hashedUrl) throws Exception {
+        CanonicalPath tenantPath = CanonicalPath.of().tenant(PERSONA).get();
+        Map<String, Map<String, List<?>>> bulk = new LinkedHashMap<>();
+        bulk.put(tenantPath.toString(), Collections.singletonMap("resource", Collections.singletonList(
+                CreateUrlCommand.urlBlueprint(PERSONA, hashedUrl, URL))));
+        bulk.put(tenantPath.extend(SegmentType.r, hashedUrl).get().toString(), Collections.singletonMap("metric",
+                CreateUrlCommand.metricBlueprints(PERSONA, hashedUrl)));
+        return mapper.writeValueAsString(bulk);
+    }
+
+    /**
+     * @return the inventory answer to {@link #bulk(String)} if the URL and both its metrics were created
+     */
+    private static String allCreated(String hashedUrl) {
+        CanonicalPath resourcePath = CanonicalPath.of().tenant(PERSONA).get().extend(SegmentType.r, hashedUrl).get();
+        return "{\"resource\":{\"" + resourcePath + "\":201},\"metric\":{"
+                + "\"" + resourcePath.extend(SegmentType.m, hashedUrl + ".status.duration").get() + "\":201,"
+                + "\"" + resourcePath.extend(SegmentType.m, hashedUrl + ".status.code").get() + "\":201}}";
+    }
+}
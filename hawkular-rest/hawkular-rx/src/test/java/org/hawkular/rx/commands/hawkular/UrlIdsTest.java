@@ -0,0 +1,155 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.hawkular;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+/**
+ * The ids of the {@link UrlIds} generators, against known answers and under concurrent use.
+ *
+ * @author agent
+ */
+public class UrlIdsTest {
+
+    private static final String EMPTY = "";
+    private static final String URL = "http://www.hawkular.org";
+    private static final String FOX = "The quick brown fox jumps over the lazy dog";
+    // 59 bytes, three full 16 byte blocks and a tail longer than 8 bytes
+    private static final String LONG_URL = "http://example.com/a/path/that-is-longer-than-one-block?q=1";
+
+    @Test
+    public void md5() {
+        UrlIdGenerator md5 = UrlIds.of(UrlIds.MD5);
+        assertEquals("d41d8cd98f00b204e9800998ecf8427e", md5.generate(EMPTY));
+        assertEquals("f10462c532a64dff46f0d49974247e76", md5.generate(URL));
+        assertEquals("9e107d9d372bb6826bd81d3542a419d6", md5.generate(FOX));
+        assertEquals("0281fcc5e922467032d06f78201d9f01", md5.generate(LONG_URL));
+    }
+
+    @Test
+    public void sha1() {
+        UrlIdGenerator sha1 = UrlIds.of("SHA-1");
+        assertEquals("da39a3ee5e6b4b0d3255bfef95601890afd80709", sha1.generate(EMPTY));
+        assertEquals("f44965d064fded6bbc70c1ddde48db3bd38868dd", sha1.generate(URL));
+        assertEquals("2fd4e1c67a2d28fced849ee1bb76e7391b93eb12", sha1.generate(FOX));
+        assertEquals("decf7b573b2e293c6c1c455de26828dd3d79c287", sha1.generate(LONG_URL));
+    }
+
+    @Test
+    public void sha256() {
+        UrlIdGenerator sha256 = UrlIds.of("SHA-256");
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", sha256.generate(EMPTY));
+        assertEquals("45b7b030b2707647dd570b60ff55a347ccbf94e5612f8af79021537a32b50385", sha256.generate(URL));
+        assertEquals("d7a8fbb307d7809469ca9abcb0082e4f8d5651e46d3cdb762d02d0bf37c9e592", sha256.generate(FOX));
+        assertEquals("b041f47548c8103201ac98fbcdfe7510d20876f97c7b9d3871a422cd7793f06e", sha256.generate(LONG_URL));
+    }
+
+    @Test
+    public void murmur3() {
+        // h1 then h2 of the reference MurmurHash3_x64_128, seed 0, each as a big-endian hex number
+        UrlIdGenerator murmur3 = UrlIds.of(UrlIds.MURMUR3_128);
+        assertEquals("00000000000000000000000000000000", murmur3.generate(EMPTY));
+        assertEquals("75256d7b42cf983d1da265ca802c1491", murmur3.generate(URL));
+        assertEquals("e34bbc7bbc071b6c7a433ca9c49a9347", murmur3.generate(FOX));
+        assertEquals("6143cc8ead15f499f8ed92edc35064ae", murmur3.generate(LONG_URL));
+    }
+
+    @Test
+    public void algorithmIsCaseInsensitive() {
+        assertEquals(UrlIds.of(UrlIds.MD5).generate(URL), UrlIds.of("md5").generate(URL));
+        assertEquals(UrlIds.of(UrlIds.MURMUR3_128).generate(URL), UrlIds.of("MURMUR3-128").generate(URL));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownAlgorithm() {
+        UrlIds.of("no-such-digest");
+    }
+
+    @Test
+    public void concurrentMd5() throws Exception {
+        assertConcurrent(UrlIds.MD5);
+    }
+
+    @Test
+    public void concurrentMurmur3() throws Exception {
+        assertConcurrent(UrlIds.MURMUR3_128);
+    }
+
+    /**
+     * One generator shared by many threads has to give each of them the ids a single thread gets.
+     */
+    private static void assertConcurrent(String algorithm) throws Exception {
+        int threads = 8;
+        int urls = 2000;
+        List<String> inputs = new ArrayList<>(urls);
+        List<String> expected = new ArrayList<>(urls);
+        UrlIdGenerator reference = UrlIds.of(algorithm);
+        for (int i = 0; i < urls; i++) {
+            // varying lengths, to mix the block and tail paths
+            String url = "http://www.hawkular.org/" + i + "/" + new String(new char[i % 37]).replace('\0', 'x');
+            inputs.add(url);
+            expected.add(reference.generate(url));
+        }
+        if (!UrlIds.MURMUR3_128.equals(algorithm)) {
+            MessageDigest digest = MessageDigest.getInstance(algorithm);
+            assertEquals(UrlIds.toHex(digest.digest(inputs.get(1).getBytes(StandardCharsets.UTF_8))), expected.get(1));
+        }
+
+        UrlIdGenerator shared = UrlIds.of(algorithm);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<String>>> results = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                int offset = t * urls / threads;
+                Callable<List<String>> hashing = () -> {
+                    start.await();
+                    List<String> ids = new ArrayList<>(urls);
+                    // each thread starts elsewhere, so that different inputs are hashed at the same time
+                    for (int i = 0; i < urls; i++) {
+                        ids.add(shared.generate(inputs.get((offset + i) % urls)));
+                    }
+                    return ids;
+                };
+                results.add(executor.submit(hashing));
+            }
+            start.countDown();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * urls / threads;
+                List<String> ids = results.get(t).get(30, TimeUnit.SECONDS);
+                for (int i = 0; i < urls; i++) {
+                    assertEquals(expected.get((offset + i) % urls), ids.get(i));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
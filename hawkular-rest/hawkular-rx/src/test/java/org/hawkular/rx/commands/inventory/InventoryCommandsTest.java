@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.inventory;
+
+import static org.hawkular.rx.commands.Factories.single;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.api.model.Resource;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.rx.cdi.JacksonConfig;
+import org.hawkular.rx.commands.Factories;
+import org.hawkular.rx.commands.RecordingClient;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.httpclient.RestResponse;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The commands created by {@link InventoryCommands} send their arguments with the dependencies of the factory.
+ *
+ * @author agent
+ */
+public class InventoryCommandsTest {
+
+    private static final String AUTH_TOKEN = "Bearer token";
+    private static final String PERSONA = "tenant";
+    private static final String LOCATION = HawkularConfiguration.URL_INVENTORY + "/test/resources/abc";
+
+    private final ObjectMapper mapper = new JacksonConfig().getCompactMapper();
+
+    private final RecordingClient client = new RecordingClient()
+            .answer(request -> new RestResponse(201, LOCATION, "{}"));
+
+    private final InventoryCommands inventoryCommands = Factories.inject(new InventoryCommands(), client, mapper,
+            new HawkularConfiguration());
+
+    @Test
+    public void createResource() throws Exception {
+        Resource.Blueprint resource = Resource.Blueprint.builder()
+                .withId("abc")
+                .withResourceTypePath(CanonicalPath.of().tenant(PERSONA).resourceType("URL").get().toString())
+                .build();
+
+        assertEquals(LOCATION, single(inventoryCommands.createResource(AUTH_TOKEN, PERSONA, resource)));
+        assertRequest("POST", HawkularConfiguration.URL_INVENTORY + "/test/resources",
+                mapper.writeValueAsString(resource));
+    }
+
+    @Test
+    public void updateResource() throws Exception {
+        Resource.Update update = Resource.Update.builder().withProperty("url", "http://www.hawkular.org").build();
+
+        assertEquals("{}", single(inventoryCommands.updateResource("abc", AUTH_TOKEN, PERSONA, update)));
+        assertRequest("PUT", HawkularConfiguration.URL_INVENTORY + "/test/resources/abc",
+                mapper.writeValueAsString(update));
+    }
+
+    @Test
+    public void deleteResource() {
+        single(inventoryCommands.deleteResource("abc", AUTH_TOKEN, PERSONA));
+        assertRequest("DELETE", HawkularConfiguration.URL_INVENTORY + "/test/resources/abc", null);
+    }
+
+    @Test
+    public void createMetricOfResource() throws Exception {
+        Metric.Blueprint metric = metric();
+
+        assertEquals(LOCATION, single(inventoryCommands.createMetric(AUTH_TOKEN, PERSONA, "abc", metric)));
+        assertRequest("POST", HawkularConfiguration.URL_INVENTORY + "/test/resources/abc/metrics",
+                mapper.writeValueAsString(metric));
+    }
+
+    @Test
+    public void createMetricOfTenant() throws Exception {
+        Metric.Blueprint metric = metric();
+
+        assertEquals(LOCATION, single(inventoryCommands.createMetric(AUTH_TOKEN, PERSONA, null, metric)));
+        assertRequest("POST", HawkularConfiguration.URL_INVENTORY + "/test/metrics",
+                mapper.writeValueAsString(metric));
+    }
+
+    @Test
+    public void deleteMetricOfResource() {
+        single(inventoryCommands.deleteMetric("abc.status.code", AUTH_TOKEN, PERSONA, "abc"));
+        assertRequest("DELETE", HawkularConfiguration.URL_INVENTORY + "/test/resources/abc/metrics/abc.status.code",
+                null);
+    }
+
+    @Test
+    public void deleteMetricOfTenant() {
+        single(inventoryCommands.deleteMetric("abc.status.code", AUTH_TOKEN, PERSONA, null));
+        assertRequest("DELETE", HawkularConfiguration.URL_INVENTORY + "/test/metrics/abc.status.code", null);
+    }
+
+    @Test
+    public void everyCallCreatesANewCommand() {
+        // the commands are single use
+        assertNotSame(inventoryCommands.deleteResource("abc", AUTH_TOKEN, PERSONA),
+                inventoryCommands.deleteResource("abc", AUTH_TOKEN, PERSONA));
+    }
+
+    private static Metric.Blueprint metric() {
+        return Metric.Blueprint.builder()
+                .withId("abc.status.code")
+                .withMetricTypePath(CanonicalPath.of().tenant(PERSONA).metricType("status.code.type").get()
+                        .toString())
+                .build();
+    }
+
+    private void assertRequest(String method, String url, String json) {
+        RecordingClient.Request request = client.getRequest();
+        assertEquals(method, request.method);
+        assertEquals(url, request.url);
+        assertEquals(AUTH_TOKEN, request.authToken);
+        assertEquals(PERSONA, request.persona);
+        assertEquals(json, request.json);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.rx.commands.metrics;
+
+import static org.hawkular.rx.commands.Factories.single;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+import org.hawkular.inventory.api.model.Metric;
+import org.hawkular.inventory.paths.CanonicalPath;
+import org.hawkular.rx.cdi.JacksonConfig;
+import org.hawkular.rx.commands.Factories;
+import org.hawkular.rx.commands.RecordingClient;
+import org.hawkular.rx.commands.common.HawkularConfiguration;
+import org.hawkular.rx.httpclient.RestResponse;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * The commands created by {@link MetricsCommands} send their arguments with the dependencies of the factory.
+ *
+ * @author agent
+ */
+public class MetricsCommandsTest {
+
+    private static final String AUTH_TOKEN = "Bearer token";
+    private static final String PERSONA = "tenant";
+    private static final String LOCATION = HawkularConfiguration.URL_METRICS + "/test/metrics/abc.status.code";
+
+    private final ObjectMapper mapper = new JacksonConfig().getCompactMapper();
+
+    private final RecordingClient client = new RecordingClient()
+            .answer(request -> new RestResponse(201, LOCATION, null));
+
+    private final MetricsCommands metricsCommands = Factories.inject(new MetricsCommands(), client, mapper,
+            new HawkularConfiguration());
+
+    @Test
+    public void createMetricOfResource() throws Exception {
+        Metric.Blueprint metric = metric();
+
+        assertEquals(LOCATION, single(metricsCommands.createMetric(AUTH_TOKEN, PERSONA, "abc", metric)));
+        assertRequest(HawkularConfiguration.URL_METRICS + "/test/resources/abc/metrics",
+                mapper.writeValueAsString(metric));
+    }
+
+    @Test
+    public void createMetricOfTenant() throws Exception {
+        Metric.Blueprint metric = metric();
+
+        assertEquals(LOCATION, single(metricsCommands.createMetric(AUTH_TOKEN, PERSONA, null, metric)));
+        assertRequest(HawkularConfiguration.URL_METRICS + "/test/metrics", mapper.writeValueAsString(metric));
+    }
+
+    @Test
+    public void everyCallCreatesANewCommand() {
+        // the commands are single use
+        assertNotSame(metricsCommands.createMetric(AUTH_TOKEN, PERSONA, null, metric()),
+                metricsCommands.createMetric(AUTH_TOKEN, PERSONA, null, metric()));
+    }
+
+    private static Metric.Blueprint metric() {
+        return Metric.Blueprint.builder()
+                .withId("abc.status.code")
+                .withMetricTypePath(CanonicalPath.of().tenant(PERSONA).metricType("status.code.type").get()
+                        .toString())
+                .build();
+    }
+
+    private void assertRequest(String url, String json) {
+        RecordingClient.Request request = client.getRequest();
+        assertEquals("POST", request.method);
+        assertEquals(url, request.url);
+        assertEquals(AUTH_TOKEN, request.authToken);
+        assertEquals(PERSONA, request.persona);
+        assertEquals(json, request.json);
+    }
+}
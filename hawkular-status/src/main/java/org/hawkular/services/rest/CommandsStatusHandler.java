@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016-2017 Red Hat, Inc. and/or its affiliates
+ * and other contributors as indicated by the @author tags.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.hawkular.services.rest;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.management.Attribute;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.jboss.logging.Logger;
+
+/**
+ * Reports the performance of the rx commands of the REST api: latency percentiles, error rates and the saturation of
+ * the thread pools. The REST api is a different deployment, its Hystrix publisher registers the numbers as MXBeans in
+ * the platform MBean server, they are read from there.
+ *
+ * @author agent
+ */
+@Path("/commands")
+@Produces(MediaType.APPLICATION_JSON)
+public class CommandsStatusHandler {
+    private static final Logger log = Logger.getLogger(CommandsStatusHandler.class);
+
+    private static final String DOMAIN = "org.hawkular.services";
+
+    @GET
+    public Map<String, Object> getCommands() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("commands", read("HystrixCommand"));
+        status.put("threadPools", read("HystrixThreadPool"));
+        return status;
+    }
+
+    private Map<String, Map<String, Object>> read(String type) {
+        MBeanServer mbs = ManagementFactory.getPlatformMBeanServer();
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        try {
+            for (ObjectName name : mbs.queryNames(new ObjectName(DOMAIN + ":type=" + type + ",*"), null)) {
+                try {
+                    MBeanAttributeInfo[] infos = mbs.getMBeanInfo(name).getAttributes();
+                    String[] attributeNames = new String[infos.length];
+                    for (int i = 0; i < infos.length; i++) {
+                        attributeNames[i] = infos[i].getName();
+                    }
+                    Map<String, Object> values = new TreeMap<>();
+                    for (Attribute attribute : mbs.getAttributes(name, attributeNames).asList()) {
+                        values.put(attribute.getName(), attribute.getValue());
+                    }
+                    result.put(ObjectName.unquote(name.getKeyProperty("name")), values);
+                } catch (JMException | IllegalArgumentException e) {
+                    // unregistered in the meantime or not one of ours
+                    log.debugf("Skipping %s: %s", name, e.getMessage());
+                }
+            }
+        } catch (JMException e) {
+            log.debugf("Could not query the %s MBeans: %s", type, e.getMessage());
+        }
+        return result;
+    }
+}